@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A document and an edited version of it, generated by
+ * {@link RichTextGenerator} with a fixed seed. The document shape can be
+ * changed with the JMH parameters, e.g.
+ * <code>-p blocks=1000 -p tableRows=20</code>, and the allocation rate is
+ * reported with <code>-prof gc</code>.
+ */
+@State(Scope.Benchmark)
+public class GeneratedDocuments {
+
+	private static final long SEED = 42;
+
+	/** the number of top level blocks */
+	@Param({ "10", "100" })
+	public int blocks;
+
+	/** the nesting depth of the lists */
+	@Param({ "3" })
+	public int depth;
+
+	@Param({ "4" })
+	public int tableRows;
+
+	@Param({ "4" })
+	public int tableColumns;
+
+	/** the probability of an edit per word and per block */
+	@Param({ "0.01", "0.1" })
+	public double editDensity;
+
+	public String origin;
+
+	public String edited;
+
+	@Setup
+	public void setUp() {
+		RichTextGenerator generator = new RichTextGenerator(SEED, blocks, depth, tableRows, tableColumns);
+		origin = generator.generate();
+		edited = generator.generate(editDensity, SEED + 1);
+	}
+
+}
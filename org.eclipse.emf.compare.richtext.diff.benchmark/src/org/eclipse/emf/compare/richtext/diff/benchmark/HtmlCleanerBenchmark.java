@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.outerj.daisy.diff.HtmlCleaner;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures {@link HtmlCleaner#cleanAndParse(InputSource, org.xml.sax.ContentHandler)}
+ * of the origin of {@link GeneratedDocuments} in both cleanup modes. The
+ * cleaned events are dropped, so building a tree is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HtmlCleanerBenchmark {
+
+	@Param({ "XSLT", "STREAMING" })
+	public HtmlCleaner.Mode mode;
+
+	private HtmlCleaner cleaner;
+
+	private DefaultHandler consumer;
+
+	@Setup
+	public void setUp() {
+		cleaner = new HtmlCleaner(mode);
+		consumer = new DefaultHandler();
+	}
+
+	@Benchmark
+	public void cleanAndParse(GeneratedDocuments documents) throws IOException, SAXException {
+		cleaner.cleanAndParse(new InputSource(new StringReader(documents.origin)), consumer);
+	}
+
+}
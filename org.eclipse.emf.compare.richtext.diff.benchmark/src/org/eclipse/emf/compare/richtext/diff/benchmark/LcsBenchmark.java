@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.compare.rangedifferencer.IRangeComparator;
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.outerj.daisy.diff.rangedifferencer.CustomRangeComparatorLCS;
+import org.outerj.daisy.diff.rangedifferencer.LcsOptions;
+import org.outerj.daisy.diff.rangedifferencer.TokenSequenceLCS;
+
+/**
+ * Compares the longest common subsequence implementations on two word
+ * sequences which differ by a given share of edited words.
+ * <ul>
+ * <li><code>rangeDifferencer</code>: the LCS of the compare bundle, as used
+ * by {@link RangeDifferencer}</li>
+ * <li><code>rangeComparatorLCS</code>: {@link CustomRangeComparatorLCS} on the
+ * same {@link IRangeComparator}s</li>
+ * <li><code>tokenSequenceLCS</code>: {@link TokenSequenceLCS} on the words
+ * mapped to int tokens</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LcsBenchmark {
+
+	private static final String[] WORDS = { "the", "a", "rich", "text", "model", "compare", "merge", "diff", "node",
+			"table", "row", "column", "paragraph", "of", "and", "in", " ", ".", "," };
+
+	@Param({ "100", "1000", "10000" })
+	public int size;
+
+	@Param({ "0.01", "0.1" })
+	public double editDensity;
+
+	private WordComparator left, right;
+
+	private int[] leftTokens, rightTokens;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		String[] leftWords = new String[size];
+		for (int i = 0; i < size; i++) {
+			leftWords[i] = WORDS[random.nextInt(WORDS.length)];
+		}
+		StringBuilder edited = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			if (random.nextDouble() < editDensity) {
+				switch (random.nextInt(3)) {
+				case 0:
+					// deletion
+					continue;
+				case 1:
+					// insertion
+					edited.append(WORDS[random.nextInt(WORDS.length)]).append('\u0000');
+					break;
+				default:
+					// replacement
+					edited.append("changed").append('\u0000');
+					continue;
+				}
+			}
+			edited.append(leftWords[i]).append('\u0000');
+		}
+		String[] rightWords = edited.toString().split("\u0000");
+
+		left = new WordComparator(leftWords);
+		right = new WordComparator(rightWords);
+		leftTokens = tokenize(leftWords);
+		rightTokens = tokenize(rightWords);
+	}
+
+	private static int[] tokenize(String[] words) {
+		int[] tokens = new int[words.length];
+		for (int i = 0; i < words.length; i++) {
+			int token = WORDS.length;
+			for (int w = 0; w < WORDS.length; w++) {
+				if (WORDS[w].equals(words[i])) {
+					token = w;
+					break;
+				}
+			}
+			tokens[i] = token;
+		}
+		return tokens;
+	}
+
+	@Benchmark
+	public RangeDifference[] rangeDifferencer() {
+		return RangeDifferencer.findDifferences(left, right);
+	}
+
+	@Benchmark
+	public RangeDifference[] rangeComparatorLCS() {
+		return CustomRangeComparatorLCS.findDifferences((IProgressMonitor) null, left, right, LcsOptions.DEFAULT);
+	}
+
+	@Benchmark
+	public RangeDifference[] tokenSequenceLCS() {
+		return TokenSequenceLCS.findDifferences((IProgressMonitor) null, leftTokens, rightTokens, LcsOptions.DEFAULT);
+	}
+
+	private static class WordComparator implements IRangeComparator {
+
+		private final String[] words;
+
+		public WordComparator(String[] words) {
+			this.words = words;
+		}
+
+		public int getRangeCount() {
+			return words.length;
+		}
+
+		public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+			return words[thisIndex].equals(((WordComparator) other).words[otherIndex]);
+		}
+
+		public boolean skipRangeComparison(int length, int maxLength, IRangeComparator other) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.outerj.daisy.diff.helper.NekoHtmlParser;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures the per document overhead of parsing tiny (&lt; 1 KB) rich text
+ * fields with a new parser for each document (<code>pooled=false</code>)
+ * and with parsers reused from the pool of {@link NekoHtmlParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class NekoHtmlParserBenchmark {
+
+	private static final String[] DOCUMENTS = {
+			"text",
+			"<p>A single paragraph</p>",
+			"<p>A <b>bold</b> and <i>italic</i> paragraph</p><p>Another one</p>",
+			"<ul><li>first</li><li>second</li><li>third</li></ul>",
+			"<table><tr><td>1</td><td>2</td></tr><tr><td>3</td><td>4</td></tr></table>" };
+
+	@Param({ "true", "false" })
+	public boolean pooled;
+
+	private NekoHtmlParser parser;
+
+	private DefaultHandler consumer;
+
+	@Setup
+	public void setUp() {
+		parser = new NekoHtmlParser(pooled);
+		consumer = new DefaultHandler();
+	}
+
+	@Benchmark
+	public void parseTinyDocuments() throws IOException, SAXException {
+		for (String document : DOCUMENTS) {
+			parser.parse(new InputSource(new StringReader(document)), consumer);
+		}
+	}
+
+}
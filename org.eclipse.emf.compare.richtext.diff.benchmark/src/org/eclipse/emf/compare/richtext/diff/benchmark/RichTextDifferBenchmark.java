@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.compare.richtext.diff.RichTextDiff;
+import org.eclipse.emf.compare.richtext.diff.internal.RichTextDiffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.outerj.daisy.diff.html.HTMLDiffer;
+
+/**
+ * Measures the two-way diff of {@link RichTextDiffer#getDiffs(String, String)}
+ * between the versions of {@link GeneratedDocuments}, including parsing them,
+ * in both modes of {@link HTMLDiffer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RichTextDifferBenchmark {
+
+	@Param({ "FLAT", "BLOCKS" })
+	public HTMLDiffer.Mode mode;
+
+	@Benchmark
+	public List<RichTextDiff> getDiffs(GeneratedDocuments documents) {
+		return new RichTextDiffer(mode).getDiffs(documents.origin, documents.edited);
+	}
+
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic rich text documents of paragraphs, nested lists and
+ * tables, and edited versions of them.
+ * <p>
+ * The structure and the words of a document only depend on the seed of the
+ * generator. An edited version is generated from the same seed and
+ * additionally deletes, inserts and replaces words and whole blocks with the
+ * given probability, drawn from a second seed. So two edited versions with
+ * different edit seeds are independent changes of the same origin, as needed
+ * for a three-way merge. Versions which edit disjoint blocks are merged
+ * without conflicts.
+ */
+public class RichTextGenerator {
+
+	private static final String[] WORDS = { "the", "a", "rich", "text", "model", "compare", "merge", "diff", "node",
+			"table", "row", "column", "paragraph", "of", "and", "in", "Lorem", "ipsum", "dolor", "sit", "amet" };
+
+	/** every n-th block is a table */
+	private static final int TABLE_INTERVAL = 10;
+
+	/** every n-th block is a nested list */
+	private static final int LIST_INTERVAL = 4;
+
+	private static final int MAX_WORDS_PER_PARAGRAPH = 40;
+
+	private static final int MAX_WORDS_PER_CELL = 4;
+
+	private final long seed;
+
+	private final int blocks;
+
+	private final int depth;
+
+	private final int tableRows;
+
+	private final int tableColumns;
+
+	/**
+	 * @param seed
+	 *            the seed of the structure and the words of the documents
+	 * @param blocks
+	 *            the number of top level blocks, paragraphs, lists and tables
+	 * @param depth
+	 *            the nesting depth of the lists, 0 for no lists
+	 * @param tableRows
+	 *            the number of rows of each table, 0 for no tables
+	 * @param tableColumns
+	 *            the number of columns of each table, 0 for no tables
+	 */
+	public RichTextGenerator(long seed, int blocks, int depth, int tableRows, int tableColumns) {
+		this.seed = seed;
+		this.blocks = blocks;
+		this.depth = depth;
+		this.tableRows = tableRows;
+		this.tableColumns = tableColumns;
+	}
+
+	/**
+	 * @return the unedited document
+	 */
+	public String generate() {
+		return generate(0, 0);
+	}
+
+	/**
+	 * @param editDensity
+	 *            the probability of an edit per word and per block
+	 * @param editSeed
+	 *            the seed of the edits
+	 * @return the edited document
+	 */
+	public String generate(double editDensity, long editSeed) {
+		return generate(editDensity, editSeed, 0, 1);
+	}
+
+	/**
+	 * Generates a version which only edits every <code>parts</code>-th block,
+	 * starting with the block <code>part</code>. So versions generated with
+	 * different parts change disjoint blocks of the origin.
+	 *
+	 * @param editDensity
+	 *            the probability of an edit per word and per block
+	 * @param editSeed
+	 *            the seed of the edits
+	 * @param part
+	 *            the index of the first edited block
+	 * @param parts
+	 *            the distance between the edited blocks
+	 * @return the edited document
+	 */
+	public String generate(double editDensity, long editSeed, int part, int parts) {
+		Generation generation = new Generation(editDensity, editSeed);
+		for (int i = 0; i < blocks; i++) {
+			generation.editing = i % parts == part;
+			generation.block(i);
+		}
+		return generation.html.toString();
+	}
+
+	/**
+	 * The state of generating a single document.
+	 */
+	private class Generation {
+
+		private final StringBuilder html = new StringBuilder();
+
+		private final Random structure = new Random(seed);
+
+		private final Random edits;
+
+		private final double editDensity;
+
+		/** whether the current block may be edited */
+		boolean editing;
+
+		public Generation(double editDensity, long editSeed) {
+			this.editDensity = editDensity;
+			this.edits = new Random(editSeed);
+		}
+
+		void block(int index) {
+			if (isEdited()) {
+				// inserted paragraph, only drawn from the edits
+				html.append("<p>");
+				for (int i = 1 + edits.nextInt(MAX_WORDS_PER_PARAGRAPH); i > 0; i--) {
+					html.append(WORDS[edits.nextInt(WORDS.length)]).append(' ');
+				}
+				html.append("</p>");
+			}
+			int start = html.length();
+			if (tableRows > 0 && tableColumns > 0 && index % TABLE_INTERVAL == TABLE_INTERVAL - 1) {
+				table();
+			} else if (depth > 0 && index % LIST_INTERVAL == LIST_INTERVAL - 1) {
+				list(depth);
+			} else {
+				html.append("<p>");
+				words(1 + structure.nextInt(MAX_WORDS_PER_PARAGRAPH));
+				html.append("</p>");
+			}
+			if (isEdited()) {
+				// deleted block, generated anyway to keep the structure in sync
+				html.setLength(start);
+			}
+		}
+
+		private void list(int levels) {
+			html.append("<ul>");
+			for (int i = 0; i < 2; i++) {
+				html.append("<li>");
+				words(1 + structure.nextInt(MAX_WORDS_PER_PARAGRAPH / 4));
+				if (i == 0 && levels > 1) {
+					list(levels - 1);
+				}
+				html.append("</li>");
+			}
+			html.append("</ul>");
+		}
+
+		private void table() {
+			html.append("<table><tbody>");
+			for (int row = 0; row < tableRows; row++) {
+				html.append("<tr>");
+				for (int column = 0; column < tableColumns; column++) {
+					html.append("<td>");
+					words(1 + structure.nextInt(MAX_WORDS_PER_CELL));
+					html.append("</td>");
+				}
+				html.append("</tr>");
+			}
+			html.append("</tbody></table>");
+		}
+
+		private void words(int count) {
+			for (int i = 0; i < count; i++) {
+				String word = WORDS[structure.nextInt(WORDS.length)];
+				int style = structure.nextInt(20);
+				if (isEdited()) {
+					switch (edits.nextInt(3)) {
+					case 0:
+						// deletion
+						continue;
+					case 1:
+						// insertion
+						html.append(WORDS[edits.nextInt(WORDS.length)]).append(' ');
+						break;
+					default:
+						// replacement
+						word = "changed";
+					}
+				}
+				if (style == 0) {
+					html.append("<b>").append(word).append("</b> ");
+				} else if (style == 1) {
+					html.append("<i>").append(word).append("</i> ");
+				} else {
+					html.append(word).append(' ');
+				}
+			}
+		}
+
+		private boolean isEdited() {
+			return editing && editDensity > 0 && edits.nextDouble() < editDensity;
+		}
+	}
+
+}
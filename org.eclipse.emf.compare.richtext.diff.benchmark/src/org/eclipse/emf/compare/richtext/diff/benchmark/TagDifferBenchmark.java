@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.outerj.daisy.diff.output.TextDiffOutput;
+import org.outerj.daisy.diff.tag.TagComparator;
+import org.outerj.daisy.diff.tag.TagDiffer;
+
+/**
+ * Measures the tag based diff of {@link TagDiffer} between the versions of
+ * {@link GeneratedDocuments}. The documents are split into
+ * atoms once, so only the diff and its output are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TagDifferBenchmark {
+
+	private TagComparator left, right;
+
+	@Setup
+	public void setUp(GeneratedDocuments documents) {
+		left = new TagComparator(documents.origin);
+		right = new TagComparator(documents.edited);
+	}
+
+	@Benchmark
+	public void diff(final Blackhole blackhole) throws Exception {
+		TagDiffer differ = new TagDiffer(new TextDiffOutput() {
+			public void addClearPart(String text) {
+				blackhole.consume(text);
+			}
+
+			public void addRemovedPart(String text) {
+				blackhole.consume(text);
+			}
+
+			public void addAddedPart(String text) {
+				blackhole.consume(text);
+			}
+		});
+		differ.diff(left, right);
+	}
+
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.outerj.daisy.diff.HtmlCleaner;
+import org.outerj.daisy.diff.html.TextNodeComparator;
+import org.outerj.daisy.diff.html.dom.DomTreeBuilder;
+import org.outerj.daisy.diff.html.dom.TokenTable;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Measures {@link RangeDifferencer} on the {@link TextNodeComparator}s of two
+ * documents of 50 000 words, with the texts of both documents interned in the
+ * same {@link TokenTable} (<code>sharedTable=true</code>), which compares
+ * int ids, and in separate tables, which falls back to comparing the texts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TextNodeComparatorBenchmark {
+
+	private static final String[] WORDS = { "the", "a", "rich", "text", "model", "compare", "merge", "diff", "node",
+			"table", "row", "column", "paragraph", "of", "and", "in", "Lorem", "ipsum", "dolor", "sit", "amet" };
+
+	private static final int SIZE = 50000;
+
+	private static final int WORDS_PER_PARAGRAPH = 50;
+
+	@Param({ "true", "false" })
+	public boolean sharedTable;
+
+	@Param({ "0.001", "0.01" })
+	public double editDensity;
+
+	private TextNodeComparator left, right;
+
+	@Setup
+	public void setUp() throws IOException, SAXException {
+		Random random = new Random(42);
+		StringBuilder original = new StringBuilder();
+		StringBuilder edited = new StringBuilder();
+		for (int i = 0; i < SIZE; i++) {
+			if (i % WORDS_PER_PARAGRAPH == 0) {
+				if (i > 0) {
+					original.append("</p>");
+					edited.append("</p>");
+				}
+				original.append("<p>");
+				edited.append("<p>");
+			}
+			String word = WORDS[random.nextInt(WORDS.length)];
+			original.append(word).append(' ');
+			if (random.nextDouble() < editDensity) {
+				switch (random.nextInt(3)) {
+				case 0:
+					// deletion
+					continue;
+				case 1:
+					// insertion
+					edited.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+					break;
+				default:
+					// replacement
+					edited.append("changed ");
+					continue;
+				}
+			}
+			edited.append(word).append(' ');
+		}
+		original.append("</p>");
+		edited.append("</p>");
+
+		DomTreeBuilder leftTree = new DomTreeBuilder();
+		DomTreeBuilder rightTree = sharedTable ? new DomTreeBuilder(leftTree.getTokenTable())
+				: new DomTreeBuilder();
+		HtmlCleaner cleaner = new HtmlCleaner();
+		cleaner.cleanAndParse(new InputSource(new StringReader(original.toString())), leftTree);
+		cleaner.cleanAndParse(new InputSource(new StringReader(edited.toString())), rightTree);
+		left = new TextNodeComparator(leftTree, Locale.ENGLISH);
+		right = new TextNodeComparator(rightTree, Locale.ENGLISH);
+	}
+
+	@Benchmark
+	public RangeDifference[] findDifferences() {
+		return RangeDifferencer.findDifferences(left, right);
+	}
+
+}
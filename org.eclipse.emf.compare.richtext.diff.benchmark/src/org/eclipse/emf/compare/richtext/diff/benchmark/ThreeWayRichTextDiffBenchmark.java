@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.compare.richtext.diff.ThreeWayRichTextDiff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the phases of a three-way merge of documents generated by
+ * {@link RichTextGenerator}, in which the left and the right version edit
+ * disjoint blocks. {@link ThreeWayRichTextDiff} caches its results, so every
+ * benchmark creates a new instance: <code>create</code> measures the two-way
+ * diffs and their pairing, the other benchmarks add the conflict detection
+ * and the merge.
+ * <p>
+ * The merge still fails for some edits inside of lists and tables, so the
+ * documents only consist of paragraphs, unlike {@link GeneratedDocuments}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ThreeWayRichTextDiffBenchmark {
+
+	private static final long SEED = 42;
+
+	/** the number of paragraphs */
+	@Param({ "10", "100" })
+	public int blocks;
+
+	/** the probability of an edit per word and per paragraph */
+	@Param({ "0.01", "0.1" })
+	public double editDensity;
+
+	private String origin, left, right;
+
+	@Setup
+	public void setUp() {
+		RichTextGenerator generator = new RichTextGenerator(SEED, blocks, 0, 0, 0);
+		origin = generator.generate();
+		left = generator.generate(editDensity, SEED + 1, 0, 2);
+		right = generator.generate(editDensity, SEED + 2, 1, 2);
+	}
+
+	@Benchmark
+	public ThreeWayRichTextDiff create() {
+		return new ThreeWayRichTextDiff(origin, left, right);
+	}
+
+	@Benchmark
+	public boolean isConflicting() {
+		return new ThreeWayRichTextDiff(origin, left, right).isConflicting();
+	}
+
+	@Benchmark
+	public String getMerged() {
+		return new ThreeWayRichTextDiff(origin, left, right).getMerged();
+	}
+
+}
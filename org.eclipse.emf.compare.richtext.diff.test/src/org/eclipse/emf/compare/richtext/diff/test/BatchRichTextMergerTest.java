@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.emf.compare.richtext.diff.BatchRichTextMerger;
+import org.eclipse.emf.compare.richtext.diff.BatchRichTextMerger.Input;
+import org.eclipse.emf.compare.richtext.diff.BatchRichTextMerger.Result;
+import org.eclipse.emf.compare.richtext.diff.ThreeWayRichTextDiff;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchRichTextMergerTest {
+
+	private final RichTextMergeInputData inputData = new RichTextMergeInputData();
+
+	/**
+	 * Tests that the results are the ones of single merges, in the order of
+	 * the inputs, and that a failing merge does not affect the others
+	 */
+	@Test
+	public void testMerge_sameAsSingleMerges() throws IOException, InterruptedException {
+		List<Input> inputs = new ArrayList<Input>();
+		for (int i = 0; i < 10; i++) {
+			inputs.add(new Input(inputData.getChangeDifferentParagraphOrigin(),
+					inputData.getChangeDifferentParagraphLeft(), inputData.getChangeDifferentParagraphRight()));
+			inputs.add(new Input(inputData.getChangeSameParagraphOrigin(), inputData.getChangeSameParagraphLeft(),
+					inputData.getChangeSameParagraphRight()));
+			// the origin cannot be parsed
+			inputs.add(new Input(null, "<p>left</p>", "<p>right</p>"));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Result> results = new BatchRichTextMerger(executor).merge(inputs);
+			Assert.assertEquals(inputs.size(), results.size());
+			for (int i = 0; i < inputs.size(); i++) {
+				Input input = inputs.get(i);
+				Result result = results.get(i);
+				if (input.getOrigin() == null) {
+					Assert.assertTrue(result.isFailed());
+					Assert.assertNull(result.getMerged());
+				} else {
+					ThreeWayRichTextDiff diff = new ThreeWayRichTextDiff(input.getOrigin(), input.getLeft(),
+							input.getRight());
+					Assert.assertFalse(result.isFailed());
+					Assert.assertEquals(diff.isConflicting(), result.isConflicting());
+					Assert.assertEquals(diff.getMerged(), result.getMerged());
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.Platform;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.outerj.daisy.diff.HtmlCleaner;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Checks that the streaming cleanup produces the same SAX events as
+ * <code>cleanup.xsl</code>, for all test data files and some documents using
+ * the rules of the stylesheet.
+ */
+@SuppressWarnings("nls")
+public class CleanupFilterTest {
+
+	private static final String[] DOCUMENTS = {
+			"",
+			"plain text",
+			"<p>a <b>bold</b> text</p><p/>",
+			"<html><head><title>title</title></head><body class=\"c\"><p>body</p></body></html>",
+			"<p>a<script type=\"text/javascript\">alert('x');</script>b</p>",
+			"<p><noscript id=\"n\" onclick=\"x\">no script</noscript></p>",
+			"<noscript id=\"n\">in body</noscript><p>p</p>",
+			"<p>text<noscript id=\"n\">late</noscript></p>",
+			"<p><noscript></noscript><noscript id=\"n\"><i>i</i></noscript></p>",
+			"<p title=\"a &amp; &lt;b&gt;\" onclick=\"x\" data-on=\"y\" on=\"z\" href=\"javascript:a\" src=\" javascript:b\">&lt;t&gt; &amp;</p>",
+			"<div>\n  <p>x</p>\n  <p>y</p>\n</div>",
+			"<table><tr><td>1</td><td>2</td></tr></table><img src=\"a.png\"/>",
+			"<!-- comment --><p>a<!-- comment -->b</p>",
+			"<div xmlns=\"http://www.w3.org/1999/xhtml\"><p>a</p></div>",
+			"<div xmlns:o=\"urn:schemas-microsoft-com:office:office\"><o:p>x</o:p></div>" };
+
+	@Test
+	public void testCleanup_testData() throws IOException, SAXException {
+		Bundle bundle = Platform.getBundle("org.eclipse.emf.compare.richtext.diff.test");
+		File data = new File(FileLocator.resolve(bundle.getEntry("data")).getPath());
+		List<File> files = new ArrayList<File>();
+		collectHtmlFiles(data, files);
+		assertTrue(files.size() > 0);
+
+		for (File file : files) {
+			assertSameEvents(file.getPath(), readFile(file));
+		}
+	}
+
+	@Test
+	public void testCleanup_rules() throws IOException, SAXException {
+		for (String document : DOCUMENTS) {
+			assertSameEvents(document, document);
+		}
+	}
+
+	private static void assertSameEvents(String name, String document) throws IOException, SAXException {
+		assertEquals(name, getEvents(document, HtmlCleaner.Mode.XSLT),
+				getEvents(document, HtmlCleaner.Mode.STREAMING));
+	}
+
+	private static String getEvents(String document, HtmlCleaner.Mode mode) throws IOException, SAXException {
+		EventRecorder recorder = new EventRecorder();
+		new HtmlCleaner(mode).cleanAndParse(new InputSource(new StringReader(document)), recorder);
+		return recorder.getEvents();
+	}
+
+	private static void collectHtmlFiles(File directory, List<File> files) {
+		File[] children = directory.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (child.isDirectory()) {
+				collectHtmlFiles(child, files);
+			} else if (child.getName().endsWith(".html")) {
+				files.add(child);
+			}
+		}
+	}
+
+	private static String readFile(File file) throws IOException {
+		StringBuilder fileContents = new StringBuilder((int) file.length());
+		Scanner scanner = new Scanner(file);
+		try {
+			while (scanner.hasNextLine()) {
+				fileContents.append(scanner.nextLine()).append('\n');
+			}
+			return fileContents.toString();
+		} finally {
+			scanner.close();
+		}
+	}
+
+	/**
+	 * Records elements, attributes and text. Adjacent character events are
+	 * merged, as their split depends on the producer.
+	 */
+	private static class EventRecorder extends DefaultHandler {
+
+		private StringBuilder events = new StringBuilder();
+
+		private StringBuilder text = new StringBuilder();
+
+		@Override
+		public void startDocument() throws SAXException {
+			events.append("startDocument\n");
+		}
+
+		@Override
+		public void endDocument() throws SAXException {
+			flushText();
+			events.append("endDocument\n");
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes)
+				throws SAXException {
+			flushText();
+			events.append("<").append(uri).append("|").append(localName).append("|").append(qName);
+			for (int i = 0; i < attributes.getLength(); i++) {
+				events.append(" ").append(attributes.getURI(i)).append("|").append(attributes.getLocalName(i))
+						.append("|").append(attributes.getQName(i)).append("=\"").append(attributes.getValue(i))
+						.append("\"");
+			}
+			events.append(">\n");
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+			flushText();
+			events.append("</").append(uri).append("|").append(localName).append("|").append(qName)
+					.append(">\n");
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) throws SAXException {
+			text.append(ch, start, length);
+		}
+
+		@Override
+		public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+			text.append(ch, start, length);
+		}
+
+		private void flushText() {
+			if (text.length() > 0) {
+				events.append("\"").append(text).append("\"\n");
+				text.setLength(0);
+			}
+		}
+
+		public String getEvents() {
+			return events.toString();
+		}
+	}
+
+}
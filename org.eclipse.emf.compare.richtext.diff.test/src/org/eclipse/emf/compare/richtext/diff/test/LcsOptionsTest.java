@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.outerj.daisy.diff.HtmlCleaner;
+import org.outerj.daisy.diff.html.dom.DomTreeBuilder;
+import org.outerj.daisy.diff.html.dom.TagNode;
+import org.outerj.daisy.diff.rangedifferencer.LcsOptions;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Checks that match ratios computed concurrently with different
+ * {@link LcsOptions} are the same as the ones computed sequentially.
+ */
+public class LcsOptionsTest {
+
+	private static final int NUMBER_OF_TASKS = 400;
+
+	private static final LcsOptions[] OPTIONS = { LcsOptions.DEFAULT, new LcsOptions(1.5, 150 * 150),
+			new LcsOptions(1.2, 10), new LcsOptions(1.1, 1) };
+
+	static RichTextMergeInputData inputData = new RichTextMergeInputData();
+
+	private static List<TagNode[]> pairs = new ArrayList<TagNode[]>();
+
+	/** expected[pair][option] */
+	private static double[][] expected;
+
+	@BeforeClass
+	public static void before() throws IOException, SAXException {
+		addPair(inputData.getChangeDifferentParagraphOrigin(), inputData.getChangeDifferentParagraphLeft());
+		addPair(inputData.getChangeDifferentParagraphAdditionDeletionOrigin(),
+				inputData.getChangeDifferentParagraphAdditionDeletionRight());
+		addPair(inputData.getInsertParagraphDifferentLocationOrigin(),
+				inputData.getInsertParagraphDifferentLocationLeft());
+		addPair(inputData.getChangeInTableSameCellOrigin(), inputData.getChangeInTableSameCellRight());
+		// long enough to be approximated with the smaller limits
+		addPair(inputData.getChangeMovedParagraphOrigin(), inputData.getChangeMovedParagraphLeft());
+
+		expected = new double[pairs.size()][OPTIONS.length];
+		for (int pair = 0; pair < pairs.size(); pair++) {
+			for (int option = 0; option < OPTIONS.length; option++) {
+				expected[pair][option] = getMatchRatio(pair, option);
+			}
+		}
+	}
+
+	@Test
+	public void testMatchRatio_limitsAreUsed() {
+		boolean differs = false;
+		for (int pair = 0; pair < pairs.size(); pair++) {
+			differs |= expected[pair][0] != expected[pair][OPTIONS.length - 1];
+		}
+		assertTrue("The options do not influence any of the match ratios", differs);
+	}
+
+	@Test
+	public void testMatchRatio_concurrentWithDifferentLimits() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			List<Future<Double>> results = new ArrayList<Future<Double>>();
+			for (int task = 0; task < NUMBER_OF_TASKS; task++) {
+				final int pair = task % pairs.size();
+				final int option = (task / pairs.size()) % OPTIONS.length;
+				results.add(executor.submit(new Callable<Double>() {
+					public Double call() throws Exception {
+						start.await();
+						return Double.valueOf(getMatchRatio(pair, option));
+					}
+				}));
+			}
+			start.countDown();
+
+			for (int task = 0; task < NUMBER_OF_TASKS; task++) {
+				int pair = task % pairs.size();
+				int option = (task / pairs.size()) % OPTIONS.length;
+				assertEquals("Task " + task + " with " + OPTIONS[option], expected[pair][option],
+						results.get(task).get().doubleValue(), 0.0);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static double getMatchRatio(int pair, int option) {
+		TagNode[] nodes = pairs.get(pair);
+		return nodes[0].getMatchRatio(nodes[1], OPTIONS[option]);
+	}
+
+	private static void addPair(String origin, String changed) throws IOException, SAXException {
+		pairs.add(new TagNode[] { getBodyNode(origin), getBodyNode(changed) });
+	}
+
+	private static TagNode getBodyNode(String sourceContent) throws IOException, SAXException {
+		InputSource source = new InputSource(new StringReader(sourceContent));
+		HtmlCleaner cleaner = new HtmlCleaner();
+		DomTreeBuilder handler = new DomTreeBuilder();
+		cleaner.cleanAndParse(source, handler);
+		return handler.getBodyNode();
+	}
+
+}
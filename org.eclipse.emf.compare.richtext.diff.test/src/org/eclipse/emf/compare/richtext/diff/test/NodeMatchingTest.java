@@ -2,18 +2,27 @@ package org.eclipse.emf.compare.richtext.diff.test;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Locale;
 
 import org.eclipse.emf.compare.richtext.diff.ThreeWayRichTextDiff;
+import org.eclipse.emf.compare.richtext.diff.internal.MatchRatioCache;
 import org.eclipse.emf.compare.richtext.diff.internal.RTBodyNode;
 import org.eclipse.emf.compare.richtext.diff.internal.RTDomTreeBuilder;
 import org.eclipse.emf.compare.richtext.diff.internal.RTNode;
+import org.eclipse.emf.compare.richtext.diff.internal.RTTagNode;
+import org.eclipse.emf.compare.richtext.diff.internal.RichTextDiffer;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.outerj.daisy.diff.HtmlCleaner;
 import org.outerj.daisy.diff.html.TextNodeComparator;
+import org.outerj.daisy.diff.html.dom.Node;
+import org.outerj.daisy.diff.html.dom.TagNode;
+import org.outerj.daisy.diff.html.modification.Modification;
+import org.outerj.daisy.diff.html.modification.ModificationType;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
 
 public class NodeMatchingTest {
 	static RichTextMergeInputData inputData = new RichTextMergeInputData();
@@ -110,6 +119,84 @@ public class NodeMatchingTest {
 				.isSameNode(rightRoot.getChild(1)));
 	}
 	
+	@Test
+	public void testMatchRatioCache_sameResults() throws IOException, SAXException {
+		MatchRatioCache matchRatios = new MatchRatioCache();
+		for (RTBodyNode root : new RTBodyNode[] { originRoot, leftRoot, rightRoot }) {
+			for (int i = 0; i < originRoot.getNbChildren(); i++) {
+				for (int j = 0; j < root.getNbChildren(); j++) {
+					RTNode originChild = (RTNode) originRoot.getChild(i);
+					Node child = root.getChild(j);
+					Assert.assertEquals(originChild.isSameNode(child), originChild.isSameNode(child, matchRatios));
+					// the second time the ratio comes from the cache
+					Assert.assertEquals(originChild.isSameNode(child), originChild.isSameNode(child, matchRatios));
+				}
+			}
+		}
+		Assert.assertTrue(matchRatios.getMisses() > 0);
+		Assert.assertTrue(matchRatios.getHits() >= matchRatios.getMisses());
+	}
+
+	@Test
+	public void testMatchRatioCache_fingerprints() throws IOException, SAXException {
+		MatchRatioCache matchRatios = new MatchRatioCache();
+		TagNode originParagraph = (TagNode) originRoot.getChild(0);
+		TagNode copy = (TagNode) originParagraph.copyTree();
+		Assert.assertEquals(0.0, matchRatios.getMatchRatio(originParagraph, copy), 0.0);
+		Assert.assertEquals(1, matchRatios.getFingerprintMatches());
+		Assert.assertEquals(originParagraph.getMatchRatio((TagNode) originRoot.getChild(1)),
+				matchRatios.getMatchRatio(originParagraph, (TagNode) originRoot.getChild(1)), 0.0);
+		Assert.assertEquals(1, matchRatios.getFingerprintMatches());
+		Assert.assertEquals(2, matchRatios.getMisses());
+	}
+
+	@Test
+	public void testIndexWithoutInsertions_invalidation() throws IOException, SAXException {
+		RTBodyNode root = (RTBodyNode) getDomTree(inputData.getChangeDifferentParagraphOrigin()).getBodyNode();
+		for (int i = 0; i < root.getNbChildren(); i++) {
+			Assert.assertEquals(i, ((RTNode) root.getChild(i)).getIndexWithoutInsertions());
+		}
+
+		RTTagNode first = (RTTagNode) root.getChild(0);
+		first.setModification(new Modification(ModificationType.ADDED, ModificationType.ADDED));
+		Assert.assertEquals(-1, first.getIndexWithoutInsertions());
+		Assert.assertEquals(0, first.countPrecedingSiblingsWithoutInsertions());
+		Assert.assertEquals(0, ((RTNode) root.getChild(1)).getIndexWithoutInsertions());
+		Assert.assertEquals(0, ((RTNode) root.getChild(1)).countPrecedingSiblingsWithoutInsertions());
+
+		RTTagNode added = new RTTagNode(null, "p", new AttributesImpl());
+		added.setParent(root);
+		root.addChild(0, added);
+		Assert.assertEquals(0, added.getIndexWithoutInsertions());
+		Assert.assertEquals(1, ((RTNode) root.getChild(2)).getIndexWithoutInsertions());
+	}
+
+	@Test
+	public void testTokenIds_sameText() throws IOException, SAXException {
+		RTDomTreeBuilder originTree = getDomTree(inputData.getChangeDifferentParagraphOrigin());
+		RTDomTreeBuilder leftTree = RichTextDiffer.buildDomTree(inputData.getChangeDifferentParagraphLeft(),
+				originTree.getTokenTable());
+		// a separate table, so the texts have to be compared
+		RTDomTreeBuilder rightTree = getDomTree(inputData.getChangeDifferentParagraphRight());
+
+		TextNodeComparator origin = new TextNodeComparator(originTree, Locale.ENGLISH);
+		TextNodeComparator left = new TextNodeComparator(leftTree, Locale.ENGLISH);
+		TextNodeComparator right = new TextNodeComparator(rightTree, Locale.ENGLISH);
+		Assert.assertNotNull(origin.getTokenIds());
+		Assert.assertNotNull(left.getTokenIds());
+		for (TextNodeComparator other : new TextNodeComparator[] { left, right }) {
+			for (int i = 0; i < origin.getRangeCount(); i++) {
+				for (int j = 0; j < other.getRangeCount(); j++) {
+					boolean sameText = origin.getTextNode(i).isSameText(other.getTextNode(j));
+					Assert.assertEquals(sameText, origin.rangesEqual(i, other, j));
+					if (other == left) {
+						Assert.assertEquals(sameText, origin.getTokenIds()[i] == left.getTokenIds()[j]);
+					}
+				}
+			}
+		}
+	}
+
 	private static RTDomTreeBuilder getDomTree(String sourceContent) throws IOException, SAXException {
 		InputSource source = new InputSource(new StringReader(sourceContent));
 		HtmlCleaner cleaner = new HtmlCleaner();
@@ -25,6 +25,7 @@ import org.eclipse.emf.compare.richtext.diff.internal.RTTagNode;
 import org.eclipse.emf.compare.richtext.diff.internal.RTTextNode;
 import org.eclipse.emf.compare.richtext.diff.internal.RichTextDiffer;
 import org.junit.Test;
+import org.outerj.daisy.diff.html.HTMLDiffer;
 import org.outerj.daisy.diff.html.dom.Node;
 import org.outerj.daisy.diff.html.dom.TextNode;
 import org.outerj.daisy.diff.html.modification.ModificationType;
@@ -505,6 +506,58 @@ public class RichTextDifferTest {
 		assertAnyDiffListEqual(diffs, expectedDiffsOption1, expectedDiffsOption2);
 	}
 	
+	/*
+	 * Block mode testcases
+	 * ====================
+	 */
+
+	/**
+	 * Testcase BLK 1 - tests that a paragraph inserted between similar
+	 * paragraphs is found as a whole if the blocks are aligned first
+	 */
+	@Test
+	public void testDiff_blockMode_paragraphInserted() {
+		String origin =     "<p>This is line 1</p><p>This is line 2</p>";
+		String newVersion = "<p>This is line 1</p><p>This is line X</p><p>This is line 2</p>";
+		List<ExpectedDiff> expectedDiffs = new ArrayList<ExpectedDiff>(
+				Arrays.asList(new ExpectedDiff[] {
+						new ExpectedModifiedTag("p", ModificationType.ADDED),
+						new ExpectedModifiedText("This", ModificationType.ADDED),
+						new ExpectedModifiedText(" ", ModificationType.ADDED),
+						new ExpectedModifiedText("is", ModificationType.ADDED),
+						new ExpectedModifiedText(" ", ModificationType.ADDED),
+						new ExpectedModifiedText("line", ModificationType.ADDED),
+						new ExpectedModifiedText(" ", ModificationType.ADDED),
+						new ExpectedModifiedText("X", ModificationType.ADDED)
+						}));
+
+		RichTextDiffer differ = new RichTextDiffer(HTMLDiffer.Mode.BLOCKS);
+		ArrayList<RichTextDiff> diffs = differ.getDiffs(origin, newVersion);
+
+		assertDiffListEqual(diffs, expectedDiffs);
+	}
+
+	/**
+	 * Testcase BLK 2 - tests that a change inside a block is found on word
+	 * level if the blocks are aligned first
+	 */
+	@Test
+	public void testDiff_blockMode_textChanged() {
+		String origin =     "<p>Line 1</p><table><tr><td>a b</td><td>c</td></tr></table><p>Line 2</p>";
+		String newVersion = "<p>Line 1</p><table><tr><td>a d</td><td>c</td></tr></table><p>Line 2</p>";
+		List<ExpectedDiff> expectedDiffs = new ArrayList<ExpectedDiff>(
+				Arrays.asList(new ExpectedDiff[] {
+						new ExpectedModifiedText("b", ModificationType.REMOVED),
+						new ExpectedModifiedText("d", ModificationType.ADDED)
+						}));
+
+		RichTextDiffer differ = new RichTextDiffer(HTMLDiffer.Mode.BLOCKS);
+		ArrayList<RichTextDiff> diffs = differ.getDiffs(origin, newVersion);
+
+		assertDiffListEqual(diffs, expectedDiffs);
+		assertEquals(diffs.toString(), new RichTextDiffer().getDiffs(origin, newVersion).toString());
+	}
+
 
 	/**
 	 * asserts that the given difference list is equal to the given list of expected
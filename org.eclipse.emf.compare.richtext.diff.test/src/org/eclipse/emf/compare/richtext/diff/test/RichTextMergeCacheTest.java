@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.test;
+
+import java.io.IOException;
+
+import org.eclipse.emf.compare.richtext.diff.RichTextMergeCache;
+import org.eclipse.emf.compare.richtext.diff.RichTextMergeCache.MemoryStore;
+import org.eclipse.emf.compare.richtext.diff.RichTextMergeCache.MergeResult;
+import org.eclipse.emf.compare.richtext.diff.ThreeWayRichTextDiff;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RichTextMergeCacheTest {
+
+	private final RichTextMergeInputData inputData = new RichTextMergeInputData();
+
+	/**
+	 * Tests that the stored result is the one of a single merge and that it
+	 * is returned for the same versions
+	 */
+	@Test
+	public void testMerge_sameAsSingleMerge() throws IOException {
+		String origin = inputData.getChangeSameParagraphOrigin();
+		String left = inputData.getChangeSameParagraphLeft();
+		String right = inputData.getChangeSameParagraphRight();
+		RichTextMergeCache cache = new RichTextMergeCache(10);
+
+		MergeResult result = cache.merge(origin, left, right);
+		ThreeWayRichTextDiff diff = new ThreeWayRichTextDiff(origin, left, right);
+		Assert.assertEquals(diff.isConflicting(), result.isConflicting());
+		Assert.assertEquals(diff.getMerged(), result.getMerged());
+		Assert.assertEquals(diff.getLeftDiffCount(), result.getLeftDiffCount());
+		Assert.assertEquals(diff.getRightDiffCount(), result.getRightDiffCount());
+
+		Assert.assertSame(result, cache.merge(new String(origin), new String(left), new String(right)));
+		Assert.assertEquals(1, cache.getHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+	}
+
+	/**
+	 * Tests that the diff counts of a merge which skipped the differences are
+	 * stored with its result
+	 */
+	@Test
+	public void testMerge_fastPathDiffCounts() throws IOException {
+		String origin = inputData.getChangeSameParagraphOrigin();
+		String right = inputData.getChangeSameParagraphRight();
+		RichTextMergeCache cache = new RichTextMergeCache(10);
+
+		MergeResult result = cache.merge(origin, origin, right);
+		Assert.assertFalse(result.isConflicting());
+		Assert.assertEquals(0, result.getLeftDiffCount());
+		Assert.assertEquals(new ThreeWayRichTextDiff(origin, origin, right).getRightDiffCount(),
+				result.getRightDiffCount());
+		Assert.assertTrue(result.getRightDiffCount() > 0);
+	}
+
+	/**
+	 * Tests that versions which only differ in their boundaries have different
+	 * keys
+	 */
+	@Test
+	public void testGetKey_boundaries() {
+		Assert.assertEquals(RichTextMergeCache.getKey("<p>a</p>", "", "<p>b</p>"),
+				RichTextMergeCache.getKey("<p>a</p>", "", "<p>b</p>"));
+		Assert.assertFalse(RichTextMergeCache.getKey("<p>a</p>", "", "<p>b</p>").equals(
+				RichTextMergeCache.getKey("<p>a</p><p>b</p>", "", "")));
+		Assert.assertFalse(RichTextMergeCache.getKey("", null, "").equals(RichTextMergeCache.getKey("", "", "")));
+	}
+
+	/**
+	 * Tests that the least recently used result is evicted
+	 */
+	@Test
+	public void testMerge_eviction() throws IOException {
+		MemoryStore store = new MemoryStore(1);
+		RichTextMergeCache cache = new RichTextMergeCache(store);
+
+		cache.merge(inputData.getChangeSameParagraphOrigin(), inputData.getChangeSameParagraphLeft(),
+				inputData.getChangeSameParagraphRight());
+		cache.merge(inputData.getChangeDifferentParagraphOrigin(), inputData.getChangeDifferentParagraphLeft(),
+				inputData.getChangeDifferentParagraphRight());
+		Assert.assertEquals(1, store.size());
+		Assert.assertEquals(1, cache.getEvictionCount());
+
+		cache.merge(inputData.getChangeSameParagraphOrigin(), inputData.getChangeSameParagraphLeft(),
+				inputData.getChangeSameParagraphRight());
+		Assert.assertEquals(0, cache.getHitCount());
+		Assert.assertEquals(3, cache.getMissCount());
+		Assert.assertEquals(2, cache.getEvictionCount());
+	}
+
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.outerj.daisy.diff.html.dom.Node;
+import org.outerj.daisy.diff.html.dom.TagNode;
+import org.outerj.daisy.diff.html.dom.TextNode;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Checks the structural edit operations of {@link TagNode}.
+ */
+@SuppressWarnings("nls")
+public class TagNodeTest {
+
+	private TagNode root;
+
+	private TagNode paragraph;
+
+	private TextNode text;
+
+	private TagNode bold;
+
+	private TextNode boldText;
+
+	private TagNode secondParagraph;
+
+	/**
+	 * Creates {@code <body><p>a<b>b</b></p><p>c</p></body>}, the bold tag
+	 * with whitespace before and after it.
+	 */
+	@Before
+	public void before() {
+		root = new TagNode(null, "body", new AttributesImpl());
+		paragraph = new TagNode(root, "p", new AttributesImpl());
+		text = new TextNode(paragraph, "a");
+		bold = new TagNode(paragraph, "b", new AttributesImpl());
+		boldText = new TextNode(bold, "b");
+		secondParagraph = new TagNode(root, "p", new AttributesImpl());
+		new TextNode(secondParagraph, "c");
+
+		text.setWhiteAfter(true);
+		bold.setWhiteBefore(true);
+		bold.setWhiteAfter(true);
+	}
+
+	/**
+	 * Tests that a removed child is detached, and that its subtree gets it as
+	 * root
+	 */
+	@Test
+	public void testRemoveChild_detaches() {
+		Assert.assertSame(bold, paragraph.removeChild(1));
+
+		Assert.assertEquals(1, paragraph.getNbChildren());
+		Assert.assertSame(text, paragraph.getChild(0));
+		Assert.assertNull(bold.getParent());
+		Assert.assertSame(bold, bold.getRoot());
+		Assert.assertSame(bold, boldText.getParent());
+		Assert.assertSame(bold, boldText.getRoot());
+		Assert.assertSame(root, text.getRoot());
+	}
+
+	/**
+	 * Tests that removing a child keeps the whitespace flags of the removed
+	 * and the remaining children
+	 */
+	@Test
+	public void testRemoveChild_keepsWhitespace() {
+		paragraph.removeChild(1);
+
+		Assert.assertTrue(text.isWhiteAfter());
+		Assert.assertTrue(bold.isWhiteBefore());
+		Assert.assertTrue(bold.isWhiteAfter());
+	}
+
+	/**
+	 * Tests that a removed text node has no root
+	 */
+	@Test
+	public void testRemoveChild_text() {
+		Assert.assertSame(text, paragraph.removeChild(0));
+
+		Assert.assertNull(text.getParent());
+		Assert.assertNull(text.getRoot());
+		Assert.assertSame(bold, paragraph.getChild(0));
+	}
+
+	/**
+	 * Tests that the nodes to remove are found by identity, and that other
+	 * nodes are ignored
+	 */
+	@Test
+	public void testRemoveChildren_identity() {
+		// equal to the first paragraph, but not a child of the root
+		TagNode similar = new TagNode(null, "p", new AttributesImpl());
+		Assert.assertEquals(0, root.removeChildren(Arrays.asList(similar, bold)));
+		Assert.assertEquals(2, root.getNbChildren());
+		Assert.assertSame(root, paragraph.getParent());
+
+		Assert.assertEquals(1, root.removeChildren(Collections.singletonList(secondParagraph)));
+		Assert.assertEquals(1, root.getNbChildren());
+		Assert.assertSame(paragraph, root.getChild(0));
+		Assert.assertNull(secondParagraph.getParent());
+		Assert.assertSame(secondParagraph, secondParagraph.getRoot());
+		Assert.assertSame(root, paragraph.getRoot());
+	}
+
+	/**
+	 * Tests that several children are removed in order, and that the
+	 * remaining children keep their order and whitespace flags
+	 */
+	@Test
+	public void testRemoveChildren_several() {
+		TextNode last = new TextNode(paragraph, "d");
+		last.setWhiteBefore(true);
+
+		Assert.assertEquals(2, paragraph.removeChildren(Arrays.<Node> asList(text, last)));
+		Assert.assertEquals(1, paragraph.getNbChildren());
+		Assert.assertSame(bold, paragraph.getChild(0));
+		Assert.assertTrue(bold.isWhiteBefore());
+		Assert.assertTrue(bold.isWhiteAfter());
+		Assert.assertTrue(text.isWhiteAfter());
+		Assert.assertTrue(last.isWhiteBefore());
+		Assert.assertNull(text.getParent());
+		Assert.assertNull(last.getParent());
+		Assert.assertEquals(0, paragraph.removeChildren(Collections.<Node> emptyList()));
+	}
+
+}
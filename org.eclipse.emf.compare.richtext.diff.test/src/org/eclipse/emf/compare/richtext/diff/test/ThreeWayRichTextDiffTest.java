@@ -5,8 +5,13 @@
 package org.eclipse.emf.compare.richtext.diff.test;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.eclipse.emf.compare.richtext.diff.ThreeWayRichTextDiff;
+import org.eclipse.emf.compare.richtext.diff.ThreeWayRichTextDiff.FastPath;
+import org.eclipse.emf.compare.richtext.diff.internal.RichTextDiffer;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -670,6 +675,132 @@ public class ThreeWayRichTextDiffTest {
 		String merged = diff.getMerged();
 		Assert.assertEquals(result, normalizeHtml(merged));
 	}
+
+	/**
+	 * Tests that computing both sides concurrently gives the same result as
+	 * computing them one after the other
+	 */
+	@Test
+	public void testMerge_concurrentSides() throws IOException {
+		String[][] inputs = {
+				{ inputData.getChangeSameParagraphOrigin(), inputData.getChangeSameParagraphLeft(),
+						inputData.getChangeSameParagraphRight() },
+				{ inputData.getInsertParagraphSameLocationOrigin(), inputData.getInsertParagraphSameLocationLeft(),
+						inputData.getInsertParagraphSameLocationRight() },
+				{ inputData.getChangeInTableSameCellOrigin(), inputData.getChangeInTableSameCellLeft(),
+						inputData.getChangeInTableSameCellRight() },
+				{ inputData.getAddColumnRemoveTableRowOrigin(), inputData.getAddColumnRemoveTableRowLeft(),
+						inputData.getAddColumnRemoveTableRowRight() } };
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			for (String[] input : inputs) {
+				ThreeWayRichTextDiff serial = new ThreeWayRichTextDiff(input[0], input[1], input[2]);
+				ThreeWayRichTextDiff concurrent = new ThreeWayRichTextDiff(input[0], input[1], input[2], executor);
+				Assert.assertEquals(serial.isConflicting(), concurrent.isConflicting());
+				Assert.assertEquals(serial.getMerged(), concurrent.getMerged());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that the merged HTML written to a writer is escaped and equal to
+	 * the merged string
+	 */
+	@Test
+	public void testWriteMerged_escapedText() throws IOException {
+		String origin = "<p>Fish &amp; chips</p><p>x<br/>y</p>";
+		String left = "<p>Fish &amp; chips &lt;hot&gt;</p><p>x<br/>y</p>";
+		String right = "<p>Fish &amp; chips</p><p>x<br/>y</p><p>z</p>";
+
+		ThreeWayRichTextDiff diff = new ThreeWayRichTextDiff(origin, left, right);
+		StringWriter writer = new StringWriter();
+		diff.writeMerged(writer);
+		Assert.assertEquals("<p>Fish &amp; chips &lt;hot&gt;</p><p>x<br/>y</p><p>z</p>", writer.toString());
+		Assert.assertEquals(writer.toString(), diff.getMerged());
+
+		// characters outside the BMP are written as one character reference
+		origin = "<p title=\"a\uD83D\uDE00\">Fish \uD83D\uDE00</p>";
+		left = "<p title=\"a\uD83D\uDE00\">Fish \uD83D\uDE00 &amp; chips</p>";
+		right = origin + "<p>z</p>";
+		diff = new ThreeWayRichTextDiff(origin, left, right);
+		writer = new StringWriter();
+		diff.writeMerged(writer);
+		Assert.assertEquals("<p title=\"a&#128512;\">Fish &#128512; &amp; chips</p><p>z</p>", writer.toString());
+		Assert.assertEquals(writer.toString(), diff.getMerged());
+	}
+
+	/**
+	 * Tests that an unchanged side is merged without comparing the versions,
+	 * and that the result is the right version
+	 */
+	@Test
+	public void testMerge_fastPath_unchangedLeft() throws IOException {
+		String origin = inputData.getChangeDifferentParagraphOrigin();
+		String right = inputData.getChangeDifferentParagraphRight();
+		long count = ThreeWayRichTextDiff.getFastPathCount(FastPath.UNCHANGED_LEFT);
+
+		ThreeWayRichTextDiff diff = new ThreeWayRichTextDiff(origin, new String(origin), right);
+		Assert.assertEquals(FastPath.UNCHANGED_LEFT, diff.getFastPath());
+		Assert.assertEquals(count + 1, ThreeWayRichTextDiff.getFastPathCount(FastPath.UNCHANGED_LEFT));
+		Assert.assertFalse(diff.isConflicting());
+		Assert.assertEquals("<p>This is line 1</p><p>This is line 2,with some other change</p>", diff.getMerged());
+		Assert.assertEquals(0, diff.getLeftDiffCount());
+		Assert.assertTrue(diff.getRightDiffCount() > 0);
+	}
+
+	/**
+	 * Tests that merging an unchanged left version results in the right
+	 * version. Comparing the versions merged the inserted paragraph into the
+	 * following one ("This is line X2").
+	 */
+	@Test
+	public void testMerge_fastPath_unchangedLeftInsertedParagraph() throws IOException {
+		String origin = inputData.getInsertParagraphSameLocationPseudoconflictOrigin();
+		String right = inputData.getInsertParagraphSameLocationPseudoconflictRight();
+
+		ThreeWayRichTextDiff diff = new ThreeWayRichTextDiff(origin, origin, right);
+		Assert.assertFalse(diff.isConflicting());
+		Assert.assertEquals("<p>This is line 1</p><p>This is line X</p><p>This is line 2</p>", diff.getMerged());
+		Assert.assertEquals(normalizeHtml(inputData.getInsertParagraphSameLocationPseudoconflictResult()),
+				normalizeHtml(diff.getMerged()));
+	}
+
+	/**
+	 * Tests that a left version which only differs from the origin in the
+	 * white space between tags is merged without comparing the versions, and
+	 * that its diffs are only computed for the right version
+	 */
+	@Test
+	public void testMerge_fastPath_unchangedCleanedLeft() throws IOException {
+		String origin = "<p>This is line 1</p><p>This is line 2</p>";
+		String left = "<p>This is line 1</p>\n<p>This is line 2</p>";
+		String right = "<p>This is line 1</p><p>This is line X</p><p>This is line 2</p>";
+
+		ThreeWayRichTextDiff diff = new ThreeWayRichTextDiff(origin, left, right);
+		Assert.assertEquals(FastPath.UNCHANGED_CLEANED_LEFT, diff.getFastPath());
+		Assert.assertFalse(diff.isConflicting());
+		Assert.assertEquals(right, diff.getMerged());
+		Assert.assertEquals(0, diff.getLeftDiffCount());
+		Assert.assertEquals(new RichTextDiffer().getDiffs(origin, right).size(), diff.getRightDiffCount());
+	}
+
+	/**
+	 * Tests that versions which only differ in the white space between tags
+	 * are merged without comparing them
+	 */
+	@Test
+	public void testMerge_fastPath_sameCleanedSides() throws IOException {
+		String origin = "<p>This is line 1</p><p>This is line 2</p>";
+		String left = "<p>This is line 1</p>\n<p>This is line X</p>\n<p>This is line 2</p>";
+		String right = "<p>This is line 1</p><p>This is line X</p><p>This is line 2</p>";
+
+		ThreeWayRichTextDiff diff = new ThreeWayRichTextDiff(origin, left, right);
+		Assert.assertEquals(FastPath.SAME_CLEANED_SIDES, diff.getFastPath());
+		Assert.assertFalse(diff.isConflicting());
+		Assert.assertEquals(right, diff.getMerged());
+	}
 	
 	/**
 	 * normalizes html code using the following operations:
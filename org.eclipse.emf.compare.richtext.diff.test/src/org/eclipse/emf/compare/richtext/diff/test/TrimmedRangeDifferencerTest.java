@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.compare.rangedifferencer.IRangeComparator;
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+import org.junit.Test;
+import org.outerj.daisy.diff.rangedifferencer.TrimmedRangeDifferencer;
+
+/**
+ * Checks that trimming the common prefix and suffix does not change the
+ * differences found by {@link RangeDifferencer}, also for ambiguous edits in
+ * sequences of few distinct words.
+ */
+@SuppressWarnings("nls")
+public class TrimmedRangeDifferencerTest {
+
+	private static final int NUMBER_OF_SEQUENCES = 500;
+
+	@Test
+	public void testFindDifferences_twoWay() {
+		Random random = new Random(42);
+		for (int i = 0; i < NUMBER_OF_SEQUENCES; i++) {
+			WordComparator left = new WordComparator(createWords(random));
+			WordComparator right = new WordComparator(edit(left.words, random));
+			assertSameDifferences(left + " / " + right, RangeDifferencer.findDifferences(left, right),
+					TrimmedRangeDifferencer.findDifferences(left, right));
+		}
+	}
+
+	@Test
+	public void testFindDifferences_threeWay() {
+		Random random = new Random(42);
+		for (int i = 0; i < NUMBER_OF_SEQUENCES; i++) {
+			WordComparator ancestor = new WordComparator(createWords(random));
+			// one side is often left unchanged
+			WordComparator left = new WordComparator(random.nextInt(4) == 0 ? ancestor.words : edit(
+					ancestor.words, random));
+			WordComparator right = new WordComparator(random.nextInt(4) == 0 ? ancestor.words : edit(
+					ancestor.words, random));
+			assertSameDifferences(ancestor + " / " + left + " / " + right,
+					RangeDifferencer.findDifferences(ancestor, left, right),
+					TrimmedRangeDifferencer.findDifferences(ancestor, left, right));
+		}
+	}
+
+	private static void assertSameDifferences(String message, RangeDifference[] expected, RangeDifference[] actual) {
+		assertEquals(message, toString(expected), toString(actual));
+	}
+
+	private static String toString(RangeDifference[] differences) {
+		StringBuilder builder = new StringBuilder();
+		for (RangeDifference d : differences) {
+			builder.append(d.kind()).append(" a").append(d.ancestorStart()).append('+').append(d.ancestorLength())
+					.append(" l").append(d.leftStart()).append('+').append(d.leftLength()).append(" r")
+					.append(d.rightStart()).append('+').append(d.rightLength()).append('\n');
+		}
+		return builder.toString();
+	}
+
+	private static String[] createWords(Random random) {
+		String[] words = new String[random.nextInt(30)];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = String.valueOf((char) ('a' + random.nextInt(3)));
+		}
+		return words;
+	}
+
+	private static String[] edit(String[] words, Random random) {
+		List<String> edited = new ArrayList<String>();
+		for (String word : words) {
+			switch (random.nextInt(10)) {
+			case 0:
+				// deletion
+				break;
+			case 1:
+				// insertion
+				edited.add(String.valueOf((char) ('a' + random.nextInt(3))));
+				edited.add(word);
+				break;
+			case 2:
+				// replacement
+				edited.add("x");
+				break;
+			default:
+				edited.add(word);
+			}
+		}
+		return edited.toArray(new String[edited.size()]);
+	}
+
+	private static class WordComparator implements IRangeComparator {
+
+		private final String[] words;
+
+		public WordComparator(String[] words) {
+			this.words = words;
+		}
+
+		public int getRangeCount() {
+			return words.length;
+		}
+
+		public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+			return words[thisIndex].equals(((WordComparator) other).words[otherIndex]);
+		}
+
+		public boolean skipRangeComparison(int length, int maxLength, IRangeComparator other) {
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			for (String word : words) {
+				builder.append(word);
+			}
+			return builder.toString();
+		}
+	}
+
+}
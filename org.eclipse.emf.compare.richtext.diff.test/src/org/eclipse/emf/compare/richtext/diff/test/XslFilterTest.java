@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.outerj.daisy.diff.HtmlCleaner;
+import org.outerj.daisy.diff.XslFilter;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Checks that {@link XslFilter} compiles every stylesheet only once per
+ * process.
+ */
+@SuppressWarnings("nls")
+public class XslFilterTest {
+
+	/** a stylesheet which is not used by the diffs of the other tests */
+	private static final String TAG_HEADER_XSL = "org/outerj/daisy/diff/tagheader.xsl";
+
+	private static final int NUMBER_OF_THREADS = 8;
+
+	private static final int PARSES_PER_THREAD = 20;
+
+	/**
+	 * Tests that warming up compiles a stylesheet once, and that it is not
+	 * compiled again when it is applied
+	 */
+	@Test
+	public void testWarmUp_compilesUpFront() throws IOException {
+		int count = XslFilter.getCompilationCount();
+
+		XslFilter.warmUp(TAG_HEADER_XSL);
+		Assert.assertEquals(count + 1, XslFilter.getCompilationCount());
+
+		XslFilter.warmUp(TAG_HEADER_XSL);
+		new XslFilter().xsl(new DefaultHandler(), TAG_HEADER_XSL);
+		Assert.assertEquals(count + 1, XslFilter.getCompilationCount());
+	}
+
+	/**
+	 * Tests that cleaning documents after warming up, also from several
+	 * threads at once, does not compile cleanup.xsl again
+	 */
+	@Test
+	public void testCleanAndParse_compilesOnce() throws IOException, SAXException, InterruptedException,
+			ExecutionException {
+		int count = XslFilter.getCompilationCount();
+		// the other tests may have compiled it already
+		HtmlCleaner.warmUp();
+		int warmCount = XslFilter.getCompilationCount();
+		Assert.assertTrue(warmCount - count <= 1);
+
+		cleanAndParse("<p>a <b>bold</b> text</p>");
+		cleanAndParse("<p>a <b>bold</b> text</p>");
+		Assert.assertEquals(warmCount, XslFilter.getCompilationCount());
+
+		ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int i = 0; i < NUMBER_OF_THREADS; i++) {
+				final int thread = i;
+				results.add(executor.submit(new Callable<Void>() {
+					public Void call() throws IOException, SAXException {
+						for (int j = 0; j < PARSES_PER_THREAD; j++) {
+							cleanAndParse("<p>thread " + thread + "</p><p>parse " + j + "</p>");
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(warmCount, XslFilter.getCompilationCount());
+	}
+
+	private static void cleanAndParse(String document) throws IOException, SAXException {
+		new HtmlCleaner(HtmlCleaner.Mode.XSLT).cleanAndParse(new InputSource(new StringReader(document)),
+				new DefaultHandler());
+	}
+
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges many rich texts at once, e.g. all rich text attributes of a model,
+ * by running one {@link ThreeWayRichTextDiff} per {@link Input} on an
+ * {@link Executor}.
+ * <p>
+ * The merges do not share any mutable state: every {@link ThreeWayRichTextDiff}
+ * parses its own trees, and the caches shared by all diffs, the compiled
+ * stylesheets and the pool of HTML parsers, are thread safe. So any executor
+ * can be used, including one running every task on its own thread. Without an
+ * executor, a shared pool of daemon threads, one per available processor, is
+ * used.
+ * <p>
+ * The results are returned in the order of the inputs. A failing merge does
+ * not affect the others, its result holds the failure instead of a merged
+ * text.
+ */
+public class BatchRichTextMerger {
+
+	private final Executor executor;
+
+	/**
+	 * Creates a merger running on the shared default pool.
+	 */
+	public BatchRichTextMerger() {
+		this(DefaultExecutor.INSTANCE);
+	}
+
+	/**
+	 * Creates a merger running on the given executor. The executor must run
+	 * the tasks while {@link #merge(Collection)} waits for them, so it must
+	 * not be an executor whose only thread is the calling one.
+	 *
+	 * @param executor
+	 *            the executor running the merges
+	 */
+	public BatchRichTextMerger(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("The executor must not be null");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Merges all inputs and waits until all merges are done.
+	 *
+	 * @param inputs
+	 *            the versions to merge
+	 * @return one result per input, in the order of the inputs
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting, the
+	 *             merges which have not started yet are cancelled
+	 */
+	public List<Result> merge(Collection<Input> inputs) throws InterruptedException {
+		List<FutureTask<Result>> tasks = new ArrayList<FutureTask<Result>>(inputs.size());
+		for (final Input input : inputs) {
+			FutureTask<Result> task = new FutureTask<Result>(new Callable<Result>() {
+				public Result call() {
+					return mergeInput(input);
+				}
+			});
+			tasks.add(task);
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				// reported as the failure of this input
+				task.cancel(false);
+			}
+		}
+
+		List<Result> results = new ArrayList<Result>(tasks.size());
+		try {
+			for (FutureTask<Result> task : tasks) {
+				results.add(getResult(task));
+			}
+		} catch (InterruptedException e) {
+			for (FutureTask<Result> task : tasks) {
+				task.cancel(false);
+			}
+			throw e;
+		}
+		return results;
+	}
+
+	private static Result mergeInput(Input input) {
+		try {
+			ThreeWayRichTextDiff diff = new ThreeWayRichTextDiff(input.getOrigin(), input.getLeft(), input.getRight());
+			boolean conflicting = diff.isConflicting();
+			return new Result(conflicting, diff.getMerged(), null);
+		} catch (RuntimeException e) {
+			return new Result(false, null, e);
+		}
+	}
+
+	private static Result getResult(FutureTask<Result> task) throws InterruptedException {
+		if (task.isCancelled()) {
+			return new Result(false, null, new RejectedExecutionException("The merge has not been executed"));
+		}
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			// errors are not caught by the task itself
+			return new Result(false, null, e.getCause());
+		}
+	}
+
+	/**
+	 * The versions of a single rich text to merge.
+	 */
+	public static final class Input {
+
+		private final String origin;
+
+		private final String left;
+
+		private final String right;
+
+		/**
+		 * @param origin
+		 *            the common ancestor
+		 * @param left
+		 *            the left version
+		 * @param right
+		 *            the right version
+		 */
+		public Input(String origin, String left, String right) {
+			this.origin = origin;
+			this.left = left;
+			this.right = right;
+		}
+
+		public String getOrigin() {
+			return origin;
+		}
+
+		public String getLeft() {
+			return left;
+		}
+
+		public String getRight() {
+			return right;
+		}
+	}
+
+	/**
+	 * The outcome of the merge of a single {@link Input}.
+	 */
+	public static final class Result {
+
+		private final boolean conflicting;
+
+		private final String merged;
+
+		private final Throwable failure;
+
+		private Result(boolean conflicting, String merged, Throwable failure) {
+			this.conflicting = conflicting;
+			this.merged = merged;
+			this.failure = failure;
+		}
+
+		/**
+		 * @return whether the left and right changes conflict, false if the
+		 *         merge failed
+		 */
+		public boolean isConflicting() {
+			return conflicting;
+		}
+
+		/**
+		 * @return the merged text, or null if the merge failed
+		 */
+		public String getMerged() {
+			return merged;
+		}
+
+		/**
+		 * @return whether the merge failed
+		 */
+		public boolean isFailed() {
+			return failure != null;
+		}
+
+		/**
+		 * @return the reason the merge failed, or null
+		 */
+		public Throwable getFailure() {
+			return failure;
+		}
+	}
+
+	/**
+	 * Holds the default pool, which is only created on first use.
+	 */
+	private static final class DefaultExecutor {
+
+		static final ExecutorService INSTANCE = Executors.newFixedThreadPool(Runtime.getRuntime()
+				.availableProcessors(), new ThreadFactory() {
+
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Rich text merge " + count.incrementAndGet());
+				// does not keep the application alive
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+}
@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the results of merges of the same versions, e.g. if the conflict
+ * state, the merged text and a preview are requested one after the other.
+ * <p>
+ * The results are stored by the SHA-256 hash of the origin, the left and the
+ * right version, so the versions themselves are not kept. A result only holds
+ * the conflict state, the merged text and the diff counts. The {@link Store}
+ * may be replaced, e.g. by one on disk. The default one keeps a bounded
+ * number of results in memory and evicts the least recently used one.
+ * <p>
+ * Instances are thread safe. If the same versions are merged concurrently
+ * before their result is stored, they are merged more than once.
+ */
+public class RichTextMergeCache {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final Store store;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates a cache keeping the given number of results in memory.
+	 *
+	 * @param maxEntries
+	 *            the maximum number of results
+	 */
+	public RichTextMergeCache(int maxEntries) {
+		this(new MemoryStore(maxEntries));
+	}
+
+	/**
+	 * Creates a cache keeping its results in the given store.
+	 *
+	 * @param store
+	 *            the store of the results
+	 */
+	public RichTextMergeCache(Store store) {
+		if (store == null) {
+			throw new IllegalArgumentException("The store must not be null");
+		}
+		this.store = store;
+	}
+
+	/**
+	 * Returns the stored result of merging the given versions, or merges them
+	 * with a {@link ThreeWayRichTextDiff} and stores the result. Failed merges
+	 * are not stored.
+	 *
+	 * @param origin
+	 *            the common ancestor
+	 * @param left
+	 *            the left version
+	 * @param right
+	 *            the right version
+	 * @return the result of the merge
+	 */
+	public MergeResult merge(String origin, String left, String right) {
+		String key = getKey(origin, left, right);
+		MergeResult result = store.get(key);
+		if (result != null) {
+			hits.incrementAndGet();
+			return result;
+		}
+		misses.incrementAndGet();
+		ThreeWayRichTextDiff diff = new ThreeWayRichTextDiff(origin, left, right);
+		result = new MergeResult(diff.isConflicting(), diff.getMerged(), diff.getLeftDiffCount(),
+				diff.getRightDiffCount());
+		store.put(key, result);
+		return result;
+	}
+
+	/**
+	 * @param origin
+	 *            the common ancestor
+	 * @param left
+	 *            the left version
+	 * @param right
+	 *            the right version
+	 * @return the key of the result of merging the given versions, the
+	 *         hexadecimal SHA-256 hash of the versions
+	 */
+	public static String getKey(String origin, String left, String right) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+		update(digest, origin);
+		update(digest, left);
+		update(digest, right);
+		byte[] hash = digest.digest();
+		char[] key = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			key[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+			key[2 * i + 1] = HEX_DIGITS[hash[i] & 0xf];
+		}
+		return new String(key);
+	}
+
+	/**
+	 * Adds the given version with its length, so that the boundaries of the
+	 * versions are part of the hash, and null differs from the empty string.
+	 */
+	private static void update(MessageDigest digest, String version) {
+		if (version == null) {
+			digest.update((byte)0);
+			return;
+		}
+		byte[] bytes = version.getBytes(UTF_8);
+		digest.update((byte)1);
+		digest.update((byte)(bytes.length >>> 24));
+		digest.update((byte)(bytes.length >>> 16));
+		digest.update((byte)(bytes.length >>> 8));
+		digest.update((byte)bytes.length);
+		digest.update(bytes);
+	}
+
+	/**
+	 * @return the number of merges answered from the store
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of merges not found in the store
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of results evicted from the store
+	 */
+	public long getEvictionCount() {
+		return store.getEvictionCount();
+	}
+
+	/**
+	 * Stores the results of merges by their keys. Implementations have to be
+	 * thread safe.
+	 */
+	public interface Store {
+
+		/**
+		 * @param key
+		 *            the key of the result
+		 * @return the stored result, or null if there is none
+		 */
+		MergeResult get(String key);
+
+		/**
+		 * Stores a result, replacing the one with the same key.
+		 *
+		 * @param key
+		 *            the key of the result
+		 * @param result
+		 *            the result to store
+		 */
+		void put(String key, MergeResult result);
+
+		/**
+		 * @return the number of results removed to limit the size of the store
+		 */
+		long getEvictionCount();
+	}
+
+	/**
+	 * Keeps a bounded number of results in memory and evicts the least
+	 * recently used one.
+	 */
+	public static class MemoryStore implements Store {
+
+		private final Map<String, MergeResult> results;
+
+		private long evictions;
+
+		/**
+		 * @param maxEntries
+		 *            the maximum number of results
+		 */
+		public MemoryStore(final int maxEntries) {
+			if (maxEntries < 1) {
+				throw new IllegalArgumentException("The store must hold at least one result");
+			}
+			this.results = new LinkedHashMap<String, MergeResult>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, MergeResult> eldest) {
+					if (size() > maxEntries) {
+						evictions++;
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		public synchronized MergeResult get(String key) {
+			return results.get(key);
+		}
+
+		public synchronized void put(String key, MergeResult result) {
+			results.put(key, result);
+		}
+
+		public synchronized long getEvictionCount() {
+			return evictions;
+		}
+
+		/**
+		 * @return the number of stored results
+		 */
+		public synchronized int size() {
+			return results.size();
+		}
+	}
+
+	/**
+	 * The outcome of merging three versions.
+	 */
+	public static final class MergeResult {
+
+		private final boolean conflicting;
+
+		private final String merged;
+
+		private final int leftDiffCount;
+
+		private final int rightDiffCount;
+
+		/**
+		 * @param conflicting
+		 *            whether the left and right changes conflict
+		 * @param merged
+		 *            the merged text
+		 * @param leftDiffCount
+		 *            the number of differences of the left version
+		 * @param rightDiffCount
+		 *            the number of differences of the right version
+		 */
+		public MergeResult(boolean conflicting, String merged, int leftDiffCount, int rightDiffCount) {
+			this.conflicting = conflicting;
+			this.merged = merged;
+			this.leftDiffCount = leftDiffCount;
+			this.rightDiffCount = rightDiffCount;
+		}
+
+		/**
+		 * @return whether the left and right changes conflict
+		 */
+		public boolean isConflicting() {
+			return conflicting;
+		}
+
+		/**
+		 * @return the merged text
+		 */
+		public String getMerged() {
+			return merged;
+		}
+
+		/**
+		 * @return the number of differences of the left version to the origin
+		 */
+		public int getLeftDiffCount() {
+			return leftDiffCount;
+		}
+
+		/**
+		 * @return the number of differences of the right version to the origin
+		 */
+		public int getRightDiffCount() {
+			return rightDiffCount;
+		}
+	}
+
+}
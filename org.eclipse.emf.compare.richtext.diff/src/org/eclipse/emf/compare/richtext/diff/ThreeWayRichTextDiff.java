@@ -12,36 +12,48 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.richtext.diff;
 
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Stack;
-
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.sax.SAXTransformerFactory;
-import javax.xml.transform.sax.TransformerHandler;
-import javax.xml.transform.stream.StreamResult;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import org.eclipse.emf.compare.richtext.diff.internal.MarkupWriter;
+import org.eclipse.emf.compare.richtext.diff.internal.MatchRatioCache;
+import org.eclipse.emf.compare.richtext.diff.internal.NodeIndex;
+import org.eclipse.emf.compare.richtext.diff.internal.OppositeDiffIndex;
 import org.eclipse.emf.compare.richtext.diff.internal.RTBodyNode;
+import org.eclipse.emf.compare.richtext.diff.internal.RTDomTreeBuilder;
 import org.eclipse.emf.compare.richtext.diff.internal.RTNode;
 import org.eclipse.emf.compare.richtext.diff.internal.RTTagNode;
 import org.eclipse.emf.compare.richtext.diff.internal.RTTextNode;
 import org.eclipse.emf.compare.richtext.diff.internal.RichTextDiffer;
 import org.eclipse.emf.compare.richtext.diff.internal.StringOutputGenerator;
+import org.eclipse.emf.compare.richtext.diff.internal.TableChanges;
 import org.outerj.daisy.diff.html.TextNodeComparator;
+import org.outerj.daisy.diff.html.dom.ImageNode;
 import org.outerj.daisy.diff.html.dom.Node;
 import org.outerj.daisy.diff.html.dom.TagNode;
 import org.outerj.daisy.diff.html.dom.TextNode;
+import org.outerj.daisy.diff.html.dom.TokenTable;
 import org.outerj.daisy.diff.html.modification.Modification;
 import org.outerj.daisy.diff.html.modification.ModificationType;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
 public class ThreeWayRichTextDiff {
@@ -61,20 +73,76 @@ public class ThreeWayRichTextDiff {
 		NOT_CONFLICTING;
 	}
 
+	/**
+	 * The shortcuts for merges whose result is known without comparing the
+	 * versions, because one side has not been changed or both sides have been
+	 * changed in the same way.
+	 */
+	public enum FastPath {
+		/** The left and the right version are equal, the left one is merged. */
+		SAME_SIDES,
+		/** The left version is equal to the origin, the right one is merged. */
+		UNCHANGED_LEFT,
+		/** The right version is equal to the origin, the left one is merged. */
+		UNCHANGED_RIGHT,
+		/**
+		 * The left and the right version are equal after cleaning, the left
+		 * one is merged.
+		 */
+		SAME_CLEANED_SIDES,
+		/**
+		 * The left version is equal to the origin after cleaning, the right
+		 * one is merged.
+		 */
+		UNCHANGED_CLEANED_LEFT,
+		/**
+		 * The right version is equal to the origin after cleaning, the left
+		 * one is merged.
+		 */
+		UNCHANGED_CLEANED_RIGHT;
+	}
+
+	/** How often each fast path has been taken, by ordinal. */
+	private static final AtomicLongArray FAST_PATH_COUNTS = new AtomicLongArray(FastPath.values().length);
+
+	private final String origin;
+
+	private final String left;
+
+	private final String right;
+
 	/** Specifies whether {@link #left} or {@link #right} has been unset. */
 	private final boolean isLeftOrRightUnset;
 
+	/** The fast path taken by this merge, or null if the versions are compared. */
+	private FastPath fastPath;
+
+	/** The merged tree of a fast path, parsed on first use if the versions are equal strings. */
+	private TagNode fastMerged;
+
+	/** The parsed origin of a fast path, parsed again if it has not been kept. */
+	private RTDomTreeBuilder parsedOrigin;
+
+	/** The parsed left version of a fast path, until it has been compared. */
+	private RTDomTreeBuilder parsedLeft;
+
+	/** The parsed right version of a fast path, until it has been compared. */
+	private RTDomTreeBuilder parsedRight;
+
 	/** The computed three-way line differences. */
 	private final List<RichTextThreeWayDiff> threeWayDifferences;
 	
 	/**
-	 * the list of diffs involved in structural conflicts
+	 * the diffs involved in structural conflicts
 	 */
-	private final List<RichTextDiff> conflictingStructuralDiffs;
+	private final Set<RichTextDiff> conflictingStructuralDiffs;
 
 	/** The conflict state. */
 	private ConflictState conflictState = ConflictState.UNKNOWN;
 
+	/** The match ratios of the tags compared during this merge. */
+	private final MatchRatioCache matchRatios = new MatchRatioCache();
+
 	/** The cached merged tree. */
 	private TextNodeComparator merged;
 
@@ -84,67 +152,152 @@ public class ThreeWayRichTextDiff {
 
 	private ArrayList<RichTextDiff> rightDiffs;
 
+	/** The left diffs by their nodes, computed on the first structural conflict. */
+	private Map<Node, RichTextDiff> leftDiffsByNode;
+
+	/** The right diffs by their nodes, computed on the first structural conflict. */
+	private Map<Node, RichTextDiff> rightDiffsByNode;
+
 	private TextNodeComparator leftComparator;
 
 	public TextNodeComparator getLeftComparator() {
+		computeSkippedLeftDiffs();
 		return leftComparator;
 	}
 
 	private TextNodeComparator rightComparator;
 
 	public TextNodeComparator getRightComparator() {
+		computeSkippedRightDiffs();
 		return rightComparator;
 	}
 
+	/**
+	 * @return the cache of the match ratios computed during this merge, which
+	 *         also provides the hit and miss counters
+	 */
+	public MatchRatioCache getMatchRatioCache() {
+		return matchRatios;
+	}
+
 	/**
 	 */
 	public ThreeWayRichTextDiff(String origin, String left, String right) {
-		this.isLeftOrRightUnset = origin != null && (left == null || right == null);
-		this.threeWayDifferences = computeThreeWayDiffs(origin, left, right);
-		this.conflictingStructuralDiffs = new ArrayList<RichTextDiff>();
+		this(origin, left, right, null);
 	}
 
 	/**
+	 * Computes the differences of the left and the right version to the
+	 * origin concurrently, the left ones on the given executor and the right
+	 * ones on the calling thread. The result is the same as the one of
+	 * {@link #ThreeWayRichTextDiff(String, String, String)}.
+	 * 
+	 * @param origin
+	 *            the common ancestor
+	 * @param left
+	 *            the left version
+	 * @param right
+	 *            the right version
+	 * @param executor
+	 *            the executor computing the left differences, or null to
+	 *            compute both sides one after the other
 	 */
-	public String getMerged() {
-		
-		// make sure all conflicting elements are known before merging
-		if(conflictState == ConflictState.UNKNOWN){
-			conflictState = computeConflictState();
+	public ThreeWayRichTextDiff(String origin, String left, String right, Executor executor) {
+		this.origin = origin;
+		this.left = left;
+		this.right = right;
+		this.isLeftOrRightUnset = origin != null && (left == null || right == null);
+		this.fastPath = findFastPath(origin, left, right);
+		if (fastPath == null) {
+			// may take a fast path after cleaning the versions
+			this.threeWayDifferences = computeThreeWayDiffs(origin, left, right, executor);
+		} else {
+			this.threeWayDifferences = Collections.emptyList();
 		}
-		
-		if (merged == null) {
-			merged = computeMerged();
+		if (fastPath != null) {
+			FAST_PATH_COUNTS.incrementAndGet(fastPath.ordinal());
 		}
-		String output = getOutput(merged.getBodyNode());
-		return output;
+		this.conflictingStructuralDiffs = Collections.newSetFromMap(new IdentityHashMap<RichTextDiff, Boolean>());
 	}
 
-	private String getOutput(TagNode node) {
-		try {
-			SAXTransformerFactory tf = (SAXTransformerFactory) TransformerFactory.newInstance();
-			TransformerHandler result = tf.newTransformerHandler();
-			Writer writer = new StringWriter();
-			StreamResult streamResult = new StreamResult(writer);
-			result.setResult(streamResult);
+	/**
+	 * @return the fast path taken by this merge, or null if the versions have
+	 *         been compared
+	 */
+	public FastPath getFastPath() {
+		return fastPath;
+	}
 
-			result.startDocument();
-			StringOutputGenerator outputGen = new StringOutputGenerator(result);
-			outputGen.generateOutput(node);
-			result.endDocument();
-			String output = writer.toString();
+	/**
+	 * @param fastPath
+	 *            a fast path
+	 * @return how often the given fast path has been taken by all merges
+	 */
+	public static long getFastPathCount(FastPath fastPath) {
+		return FAST_PATH_COUNTS.get(fastPath.ordinal());
+	}
 
-			return output.substring("<?xml version=\"1.0\" encoding=\"UTF-8\"?>".length());
+	/**
+	 * @return the merged HTML
+	 */
+	public String getMerged() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeMerged(writer);
+		} catch (IOException e) {
+			// a StringWriter does not throw
+			throw new IllegalStateException(e);
+		}
+		return writer.toString();
+	}
 
+	/**
+	 * Writes the merged HTML to the given writer, without building it as a
+	 * string first. The writer is flushed, but not closed.
+	 *
+	 * @param writer
+	 *            the writer receiving the merged HTML
+	 * @throws IOException
+	 *             if the writer fails
+	 */
+	public void writeMerged(Writer writer) throws IOException {
+		try {
+			writeMerged(new MarkupWriter(writer));
 		} catch (SAXException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (TransformerConfigurationException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			if (e.getException() instanceof IOException) {
+				throw (IOException)e.getException();
+			}
+			throw new IOException(e);
 		}
-		return null;
+	}
 
+	/**
+	 * Reports the merged HTML as SAX events to the given handler, between a
+	 * start and an end of document. The body element itself is not reported.
+	 *
+	 * @param handler
+	 *            the handler receiving the merged HTML
+	 * @throws SAXException
+	 *             if the handler fails
+	 */
+	public void writeMerged(ContentHandler handler) throws SAXException {
+		TagNode mergedBody;
+		if (fastPath != null) {
+			mergedBody = getFastMerged();
+		} else {
+			// make sure all conflicting elements are known before merging
+			if (conflictState == ConflictState.UNKNOWN) {
+				conflictState = computeConflictState();
+			}
+
+			if (merged == null) {
+				merged = computeMerged();
+			}
+			mergedBody = merged.getBodyNode();
+		}
+		handler.startDocument();
+		new StringOutputGenerator(handler).generateOutput(mergedBody);
+		handler.endDocument();
 	}
 
 	/**
@@ -156,46 +309,335 @@ public class ThreeWayRichTextDiff {
 		return ConflictState.CONFLICTING.equals(conflictState);
 	}
 
-	private List<RichTextThreeWayDiff> computeThreeWayDiffs(String origin, String left, String right) {
-		RichTextDiffer leftDiffer = new RichTextDiffer();
-		leftDiffs = leftDiffer.getDiffs(origin, left);
-		leftComparator = leftDiffer.getComparator();
+	/**
+	 * @return the number of differences of the left version to the origin
+	 */
+	public int getLeftDiffCount() {
+		if (fastPath == FastPath.UNCHANGED_LEFT || fastPath == FastPath.UNCHANGED_CLEANED_LEFT) {
+			return 0;
+		}
+		computeSkippedLeftDiffs();
+		return leftDiffs.size();
+	}
 
-		RichTextDiffer rightDiffer = new RichTextDiffer();
-		rightDiffs = rightDiffer.getDiffs(origin, right);
-		rightComparator = rightDiffer.getComparator();
+	/**
+	 * @return the number of differences of the right version to the origin
+	 */
+	public int getRightDiffCount() {
+		if (fastPath == FastPath.UNCHANGED_RIGHT || fastPath == FastPath.UNCHANGED_CLEANED_RIGHT) {
+			return 0;
+		}
+		computeSkippedRightDiffs();
+		return rightDiffs.size();
+	}
+
+	/**
+	 * @return the fast path for versions of which two are equal, or null
+	 */
+	private static FastPath findFastPath(String origin, String left, String right) {
+		if (origin == null || left == null || right == null) {
+			return null;
+		}
+		if (left.equals(right)) {
+			return FastPath.SAME_SIDES;
+		}
+		if (left.equals(origin)) {
+			return FastPath.UNCHANGED_LEFT;
+		}
+		if (right.equals(origin)) {
+			return FastPath.UNCHANGED_RIGHT;
+		}
+		return null;
+	}
+
+	/**
+	 * Determines the fast path for parsed versions of which two are written as
+	 * the same HTML, and keeps the parsed versions.
+	 *
+	 * @return the fast path or null
+	 */
+	private FastPath findCleanedFastPath(RTDomTreeBuilder originTree, RTDomTreeBuilder leftTree,
+			RTDomTreeBuilder rightTree) {
+		FastPath cleanedFastPath;
+		if (isSameTree(leftTree.getBodyNode(), rightTree.getBodyNode())) {
+			cleanedFastPath = FastPath.SAME_CLEANED_SIDES;
+		} else if (isSameTree(leftTree.getBodyNode(), originTree.getBodyNode())) {
+			cleanedFastPath = FastPath.UNCHANGED_CLEANED_LEFT;
+		} else if (isSameTree(rightTree.getBodyNode(), originTree.getBodyNode())) {
+			cleanedFastPath = FastPath.UNCHANGED_CLEANED_RIGHT;
+		} else {
+			return null;
+		}
+		parsedOrigin = originTree;
+		parsedLeft = leftTree;
+		parsedRight = rightTree;
+		return cleanedFastPath;
+	}
+
+	/**
+	 * Compares two parsed trees, which are written as the same HTML if they
+	 * have the same tags with the same attributes in the same order, the same
+	 * texts and the same white space around their nodes. Texts interned in the
+	 * same {@link TokenTable} are compared by id. Stops at the first
+	 * difference.
+	 *
+	 * @return true if the trees are the same
+	 */
+	private static boolean isSameTree(Node node, Node other) {
+		if (node.getClass() != other.getClass() || node.isWhiteBefore() != other.isWhiteBefore()
+				|| node.isWhiteAfter() != other.isWhiteAfter()) {
+			return false;
+		}
+		if (node instanceof TagNode) {
+			TagNode tag = (TagNode) node;
+			TagNode otherTag = (TagNode) other;
+			int nbChildren = tag.getNbChildren();
+			if (nbChildren != otherTag.getNbChildren() || !tag.getQName().equals(otherTag.getQName())
+					|| !isSameAttributes(tag.getAttributes(), otherTag.getAttributes())) {
+				return false;
+			}
+			for (int i = 0; i < nbChildren; i++) {
+				if (!isSameTree(tag.getChild(i), otherTag.getChild(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (node instanceof TextNode) {
+			TextNode text = (TextNode) node;
+			TextNode otherText = (TextNode) other;
+			if (text.getTokenId() != -1 && text.getTokenTable() == otherText.getTokenTable()) {
+				if (text.getTokenId() != otherText.getTokenId()) {
+					return false;
+				}
+			} else if (!text.getText().equals(otherText.getText())) {
+				return false;
+			}
+			return !(node instanceof ImageNode)
+					|| isSameAttributes(((ImageNode) node).getAttributes(), ((ImageNode) other).getAttributes());
+		}
+		return false;
+	}
+
+	private static boolean isSameAttributes(Attributes attributes, Attributes otherAttributes) {
+		if (attributes == null || otherAttributes == null) {
+			return attributes == otherAttributes;
+		}
+		int length = attributes.getLength();
+		if (length != otherAttributes.getLength()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (!attributes.getQName(i).equals(otherAttributes.getQName(i))
+					|| !attributes.getValue(i).equals(otherAttributes.getValue(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the merged tree of the fast path, the unchanged or the equal
+	 *         version
+	 */
+	private TagNode getFastMerged() {
+		if (fastMerged == null) {
+			boolean mergeRight = fastPath == FastPath.UNCHANGED_LEFT || fastPath == FastPath.UNCHANGED_CLEANED_LEFT;
+			RTDomTreeBuilder tree = mergeRight ? parsedRight : parsedLeft;
+			if (tree != null) {
+				// the kept tree may still be compared, so it is not changed
+				fastMerged = tree.getDomTreeCopy().getBodyNode();
+			} else if (mergeRight) {
+				fastMerged = parse(right, new TokenTable(), "right version").getBodyNode();
+			} else {
+				fastMerged = parse(left, new TokenTable(), "left version").getBodyNode();
+			}
+			fastMerged.expandWhiteSpace();
+		}
+		return fastMerged;
+	}
+
+	/**
+	 * Computes the differences of the left version if a fast path skipped
+	 * them.
+	 */
+	private void computeSkippedLeftDiffs() {
+		if (leftComparator == null) {
+			RTDomTreeBuilder tree = parsedLeft;
+			// the differ changes the tree, so it is compared only once
+			parsedLeft = null;
+			if (tree == null) {
+				tree = parse(left, getParsedOrigin().getTokenTable(), "left version");
+			}
+			RichTextDiffer differ = new RichTextDiffer();
+			leftDiffs = computeDiffs(differ, getParsedOrigin(), tree, "left");
+			leftComparator = differ.getComparator();
+		}
+	}
+
+	/**
+	 * Computes the differences of the right version if a fast path skipped
+	 * them.
+	 */
+	private void computeSkippedRightDiffs() {
+		if (rightComparator == null) {
+			RTDomTreeBuilder tree = parsedRight;
+			parsedRight = null;
+			if (tree == null) {
+				tree = parse(right, getParsedOrigin().getTokenTable(), "right version");
+			}
+			RichTextDiffer differ = new RichTextDiffer();
+			rightDiffs = computeDiffs(differ, getParsedOrigin(), tree, "right");
+			rightComparator = differ.getComparator();
+		}
+	}
+
+	/**
+	 * @return the parsed origin of a fast path
+	 */
+	private RTDomTreeBuilder getParsedOrigin() {
+		if (parsedOrigin == null) {
+			parsedOrigin = parse(origin, new TokenTable(), "origin");
+		}
+		return parsedOrigin;
+	}
+
+	private List<RichTextThreeWayDiff> computeThreeWayDiffs(String origin, String left, String right,
+			Executor executor) {
+		// the origin is parsed only once, each differ works on its own copy
+		RTDomTreeBuilder originTree = parse(origin, new TokenTable(), "origin");
+
+		// intern the texts of both versions in the same table, so texts are
+		// compared by id
+		RTDomTreeBuilder leftTree;
+		RTDomTreeBuilder rightTree;
+		if (executor == null) {
+			leftTree = parse(left, originTree.getTokenTable(), "left version");
+			rightTree = parse(right, originTree.getTokenTable(), "right version");
+		} else {
+			FutureTask<RTDomTreeBuilder> leftTask = createParseTask(left, originTree.getTokenTable());
+			execute(executor, leftTask);
+			try {
+				rightTree = parse(right, originTree.getTokenTable(), "right version");
+			} catch (RuntimeException e) {
+				leftTask.cancel(false);
+				throw e;
+			}
+			leftTree = getResult(leftTask);
+		}
+
+		fastPath = findCleanedFastPath(originTree, leftTree, rightTree);
+		if (fastPath != null) {
+			return Collections.emptyList();
+		}
+		computeSideDiffs(originTree, leftTree, rightTree, executor);
 
 		final ArrayList<RichTextThreeWayDiff> threeWayDiffs = new ArrayList<RichTextThreeWayDiff>();
-		// TODO - check the length of the lists and iterate over the smaller one
-		@SuppressWarnings("unchecked")
-		ArrayList<RichTextDiff> leftDiffsCpy = (ArrayList<RichTextDiff>) leftDiffs.clone();
+		OppositeDiffIndex leftDiffIndex = new OppositeDiffIndex(leftDiffs, matchRatios);
 		for (RichTextDiff diff : rightDiffs) {
-			RichTextDiff oppositeDiff = findOppositeDiff(diff.getChild(), leftDiffsCpy);
-			if (oppositeDiff != null) {
-				leftDiffsCpy.remove(oppositeDiff);
-			}
+			RichTextDiff oppositeDiff = leftDiffIndex.removeOppositeDiff(diff.getChild());
 			threeWayDiffs.add(new RichTextThreeWayDiff(oppositeDiff, diff));
 		}
-		for (RichTextDiff diff : leftDiffsCpy) {
+		for (RichTextDiff diff : leftDiffIndex.getRemainingDiffs()) {
 			threeWayDiffs.add(new RichTextThreeWayDiff(diff, null));
 		}
 		return threeWayDiffs;
 	}
 
-	private RichTextDiff findOppositeDiff(Node node, ArrayList<RichTextDiff> searchList) {
-		for (RichTextDiff diff : searchList) {
-			if (diff.getChild() == null) {
-				continue;
+	/**
+	 * Computes the differences of both sides to the origin, the left ones on
+	 * the given executor, if any.
+	 */
+	private void computeSideDiffs(RTDomTreeBuilder originTree, RTDomTreeBuilder leftTree, RTDomTreeBuilder rightTree,
+			Executor executor) {
+		RichTextDiffer leftDiffer = new RichTextDiffer();
+		RichTextDiffer rightDiffer = new RichTextDiffer();
+		if (executor == null) {
+			leftDiffs = computeDiffs(leftDiffer, originTree, leftTree, "left");
+			rightDiffs = computeDiffs(rightDiffer, originTree, rightTree, "right");
+		} else {
+			FutureTask<ArrayList<RichTextDiff>> leftTask = createDiffTask(leftDiffer, originTree, leftTree);
+			execute(executor, leftTask);
+			try {
+				rightDiffs = computeDiffs(rightDiffer, originTree, rightTree, "right");
+			} catch (RuntimeException e) {
+				leftTask.cancel(false);
+				throw e;
 			}
-			if (!(diff.getChild() instanceof RTNode)) {
-				// FIXME should we fail in this case?
-				continue;
+			leftDiffs = getResult(leftTask);
+		}
+		leftComparator = leftDiffer.getComparator();
+		rightComparator = rightDiffer.getComparator();
+	}
+
+	private static RTDomTreeBuilder parse(String content, TokenTable tokenTable, String version) {
+		try {
+			return RichTextDiffer.buildDomTree(content, tokenTable);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Could not parse the " + version, e);
+		} catch (SAXException e) {
+			throw new IllegalArgumentException("Could not parse the " + version, e);
+		}
+	}
+
+	private static ArrayList<RichTextDiff> computeDiffs(RichTextDiffer differ, RTDomTreeBuilder originTree,
+			RTDomTreeBuilder tree, String side) {
+		try {
+			return differ.computeDiffs(originTree, tree);
+		} catch (SAXException e) {
+			throw new IllegalArgumentException("Could not compare the " + side + " version", e);
+		}
+	}
+
+	private static FutureTask<RTDomTreeBuilder> createParseTask(final String content, final TokenTable tokenTable) {
+		return new FutureTask<RTDomTreeBuilder>(new Callable<RTDomTreeBuilder>() {
+			public RTDomTreeBuilder call() {
+				return parse(content, tokenTable, "left version");
 			}
-			RTNode child = (RTNode) diff.getChild();
-			if (child.isSameNode(node))
-				return diff;
+		});
+	}
+
+	private static FutureTask<ArrayList<RichTextDiff>> createDiffTask(final RichTextDiffer differ,
+			final RTDomTreeBuilder originTree, final RTDomTreeBuilder tree) {
+		return new FutureTask<ArrayList<RichTextDiff>>(new Callable<ArrayList<RichTextDiff>>() {
+			public ArrayList<RichTextDiff> call() {
+				return computeDiffs(differ, originTree, tree, "left");
+			}
+		});
+	}
+
+	/**
+	 * Runs the given task on the executor, or on the calling thread if the
+	 * executor rejects it.
+	 */
+	private static void execute(Executor executor, FutureTask<?> task) {
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+	}
+
+	/**
+	 * Waits for the given task and rethrows its failure.
+	 */
+	private static <T> T getResult(FutureTask<T> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			task.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while processing the left version", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new IllegalStateException(cause);
 		}
-		return null;
 	}
 
 	/**
@@ -205,6 +647,10 @@ public class ThreeWayRichTextDiff {
 	 * @return The computed conflict state.
 	 */
 	private ConflictState computeConflictState() {
+		if (fastPath != null) {
+			// only one side has been changed, or both in the same way
+			return ConflictState.NOT_CONFLICTING;
+		}
 		
 		// We need to store the conflicting elements to merge it later, so we
 		// cannot stop at the first conflict we find.
@@ -231,17 +677,54 @@ public class ThreeWayRichTextDiff {
 		// We need to store the conflicting elements to merge it later, so we
 		// cannot stop at the first conflict we find.
 		ConflictState newConflictState = ConflictState.NOT_CONFLICTING;
+		if (leftDiffs.isEmpty()) {
+			return newConflictState;
+		}
+		
+		// group the right diffs once, so that each left diff is only compared
+		// to the right diffs of the parents and the tables it may match
+		TagGroups rightDiffsByParent = new TagGroups();
+		Map<String, List<RichTextDiff>> rightAdditionsByLocation = new HashMap<String, List<RichTextDiff>>();
+		TagGroups rightRowDiffsByTable = new TagGroups();
+		TagGroups rightCellDiffsByTable = new TagGroups();
+		// the tables of both sides are only traversed once
+		Map<TagNode, TableChanges> tables = new IdentityHashMap<TagNode, TableChanges>();
+		for (RichTextDiff rightDiff : rightDiffs) {
+			Node rightNode = rightDiff.getChild();
+			TagNode rightParent = findParent(rightNode);
+			if (rightParent instanceof RTTagNode) {
+				rightDiffsByParent.add((RTTagNode) rightParent, rightDiff);
+			}
+			if (rightParent == rightNode && rightDiff.getModification().getType() == ModificationType.ADDED) {
+				String location = getAdditionLocation(rightNode);
+				if (location != null) {
+					addToGroup(rightAdditionsByLocation, location, rightDiff);
+				}
+			}
+			if (rightNode instanceof TagNode) {
+				String qName = ((TagNode) rightNode).getQName();
+				if (qName.equals("tr")) {
+					TagNode rightTable = findParentTag(rightNode, "table");
+					if (rightTable instanceof RTTagNode) {
+						rightRowDiffsByTable.add((RTTagNode) rightTable, rightDiff);
+					}
+				} else if (qName.equals("td")) {
+					TagNode rightTable = findParentTag(rightNode, "table");
+					if (rightTable instanceof RTTagNode) {
+						rightCellDiffsByTable.add((RTTagNode) rightTable, rightDiff);
+					}
+				}
+			}
+		}
 		
 		for (RichTextDiff leftDiff : leftDiffs) {
 			Node node = leftDiff.getChild();
 			TagNode leftParent = findParent(leftDiff.getChild());
-			if (leftParent instanceof RTTagNode || leftParent instanceof RTBodyNode) {
-				for (RichTextDiff rightDiff : rightDiffs) {
-					TagNode rightParent = findParent(rightDiff.getChild());
-					if (rightParent instanceof RTTagNode
-							&& leftParent instanceof RTTagNode
-							&& ((RTNode) leftParent).isSameNode(rightParent)) {
-						
+			if (leftParent instanceof RTTagNode) {
+				for (Entry<TagNode, List<RichTextDiff>> parent : rightDiffsByParent.getSameTags((RTTagNode) leftParent)
+						.entrySet()) {
+					TagNode rightParent = parent.getKey();
+					for (RichTextDiff rightDiff : parent.getValue()) {
 						if (areNodeTreesEqual((RTTagNode) leftParent,
 								(RTTagNode) rightParent)
 								|| (leftDiff.getModification().getType() == ModificationType.ADDED && rightDiff
@@ -253,36 +736,31 @@ public class ThreeWayRichTextDiff {
 
 						newConflictState = ConflictState.CONFLICTING;
 						addConflictingStructuralDiffPair(leftDiff, rightDiff);
-						
-					} else if (node == leftParent
-							&& rightParent == rightDiff.getChild()
-							&& leftDiff.getModification().getType() == ModificationType.ADDED
-							&& rightDiff.getModification().getType() == ModificationType.ADDED) {
-						// although the tags are not equal, they might be added
-						// on the same location within their parent, which is
-						// also a conflict
-						
-						// first retrieve the parents
+					}
+				}
+			}
+			if ((leftParent instanceof RTTagNode || leftParent instanceof RTBodyNode)
+					&& node == leftParent
+					&& leftDiff.getModification().getType() == ModificationType.ADDED) {
+				// although the tags are not equal, they might be added
+				// on the same location within their parent, which is
+				// also a conflict
+				String location = getAdditionLocation(node);
+				List<RichTextDiff> additions = location == null ? null : rightAdditionsByLocation.get(location);
+				if (additions != null) {
+					for (RichTextDiff rightDiff : additions) {
+						Node rightNode = rightDiff.getChild();
+						if (leftParent instanceof RTTagNode && rightNode instanceof RTTagNode
+								&& ((RTNode) leftParent).isSameNode(rightNode, matchRatios)) {
+							// equal tags have been checked above
+							continue;
+						}
 						TagNode realLeftParent = node.getParent();
-						TagNode realRightParent = rightDiff.getChild().getParent();
-						if (realLeftParent instanceof RTTagNode
-								&& realRightParent instanceof RTTagNode) {
-							RTTagNode leftRTParent = (RTTagNode) realLeftParent;
-							RTTagNode rightRTParent = (RTTagNode) realRightParent;
-							// if the parents are not the same there is no need
-							// to check the insertion index
-							if (leftRTParent.isSameNode(rightRTParent)
-									&& countPreceedingSiblingsWithoutInsertions(node) == countPreceedingSiblingsWithoutInsertions(rightDiff
-											.getChild())) {
-								newConflictState = ConflictState.CONFLICTING;
-								addConflictingStructuralDiffPair(leftDiff, rightDiff);
-								
-							}
-						}else if (realLeftParent instanceof RTBodyNode
-								&& realRightParent instanceof RTBodyNode
-								&& countPreceedingSiblingsWithoutInsertions(node) == countPreceedingSiblingsWithoutInsertions(rightDiff
-										.getChild())) {
-							// body nodes are always equal, so we do not need to check the equality
+						TagNode realRightParent = rightNode.getParent();
+						// body nodes are always equal, so we do not need to
+						// check the equality
+						if (realLeftParent instanceof RTBodyNode
+								|| ((RTTagNode) realLeftParent).isSameNode(realRightParent, matchRatios)) {
 							newConflictState = ConflictState.CONFLICTING;
 							addConflictingStructuralDiffPair(leftDiff, rightDiff);
 						}
@@ -300,22 +778,15 @@ public class ThreeWayRichTextDiff {
 				// has been changed in the right version
 				TagNode leftTable = findParentTag(node, "table");
 				if (leftTable instanceof RTTagNode
-						&& hasTableColumnChanged(leftTable)) {
+						&& hasTableColumnChanged(leftTable, tables)) {
 					
 					// table columnn has been changed -> check for row changes
 					// in the same table of the right version
-					for (RichTextDiff rightDiff : rightDiffs) {
-						
-						Node rightNode = rightDiff.getChild();
-						if(rightNode instanceof TagNode && ((TagNode) rightNode).getQName().equals("tr")){
-							
-							TagNode rightTable = findParentTag(rightNode, "table");
-							if (rightTable instanceof RTTagNode && ((RTTagNode)leftTable).isSameNode((RTTagNode)rightTable)) {
-								newConflictState = ConflictState.CONFLICTING;
-								addConflictingStructuralDiffPair(leftDiff, rightDiff);
-							}
+					for (List<RichTextDiff> rowDiffs : rightRowDiffsByTable.getSameTags((RTTagNode) leftTable).values()) {
+						for (RichTextDiff rightDiff : rowDiffs) {
+							newConflictState = ConflictState.CONFLICTING;
+							addConflictingStructuralDiffPair(leftDiff, rightDiff);
 						}
-						
 					}
 				}
 				// FIXME how should we handle malformed HTML (table rows or columns without parent table) in this case?
@@ -327,22 +798,15 @@ public class ThreeWayRichTextDiff {
 				TagNode leftTable = findParentTag(node, "table");
 				if (leftTable instanceof RTTagNode){
 					
-					for (RichTextDiff rightDiff : rightDiffs) {
-						
-						Node rightNode = rightDiff.getChild();
-						if(rightNode instanceof TagNode && ((TagNode) rightNode).getQName().equals("td")){
-							
-							TagNode rightTable = findParentTag(rightNode, "table");
-							if (rightTable instanceof RTTagNode
-									&& ((RTTagNode) leftTable)
-											.isSameNode((RTTagNode) rightTable)
-									&& hasTableColumnChanged(rightTable)) {
+					for (Entry<TagNode, List<RichTextDiff>> table : rightCellDiffsByTable.getSameTags(
+							(RTTagNode) leftTable).entrySet()) {
+						TagNode rightTable = table.getKey();
+						if (hasTableColumnChanged(rightTable, tables)) {
+							for (RichTextDiff rightDiff : table.getValue()) {
 								newConflictState = ConflictState.CONFLICTING;
 								addConflictingStructuralDiffPair(leftDiff, rightDiff);
 							}
-							
 						}
-						
 					}
 					
 				}
@@ -352,6 +816,35 @@ public class ThreeWayRichTextDiff {
 		return newConflictState;
 	}
 	
+	/**
+	 * @param node
+	 *            an added node
+	 * @return the key of the location of the given node, which is the same
+	 *         for nodes added to parents with the same qualified name at the
+	 *         same index, or null if the parent is no rich text node
+	 */
+	private String getAdditionLocation(Node node) {
+		TagNode parent = node.getParent();
+		String parentKey;
+		if (parent instanceof RTBodyNode) {
+			parentKey = "body";
+		} else if (parent instanceof RTTagNode) {
+			parentKey = "<" + parent.getQName();
+		} else {
+			return null;
+		}
+		return parentKey + "#" + countPreceedingSiblingsWithoutInsertions(node);
+	}
+	
+	private static <K> void addToGroup(Map<K, List<RichTextDiff>> groups, K key, RichTextDiff diff) {
+		List<RichTextDiff> group = groups.get(key);
+		if (group == null) {
+			group = new ArrayList<RichTextDiff>();
+			groups.put(key, group);
+		}
+		group.add(diff);
+	}
+	
 	/**
 	 * adds a pair of conflicting {@link RichTextDiff}s and all
 	 * {@link RichTextDiff}s containing the child nodes of those two
@@ -362,8 +855,12 @@ public class ThreeWayRichTextDiff {
 	 */
 	private void addConflictingStructuralDiffPair(RichTextDiff leftDiff, RichTextDiff rightDiff){
 
-		addConflictingStructuralDiff(leftDiff, leftDiffs);
-		addConflictingStructuralDiff(rightDiff, rightDiffs);
+		if (leftDiffsByNode == null) {
+			leftDiffsByNode = getDiffsByNode(leftDiffs);
+			rightDiffsByNode = getDiffsByNode(rightDiffs);
+		}
+		addConflictingStructuralDiff(leftDiff, leftDiffsByNode);
+		addConflictingStructuralDiff(rightDiff, rightDiffsByNode);
 	}
 	
 	/**
@@ -373,10 +870,12 @@ public class ThreeWayRichTextDiff {
 	 * 
 	 * @param diff
 	 * @param allDiffs
+	 *            the diffs of the same side by their nodes
 	 */
-	private void addConflictingStructuralDiff(RichTextDiff diff, List<RichTextDiff> allDiffs){
-		if(!conflictingStructuralDiffs.contains(diff)){
-			conflictingStructuralDiffs.add(diff);
+	private void addConflictingStructuralDiff(RichTextDiff diff, Map<Node, RichTextDiff> allDiffs){
+		if(!conflictingStructuralDiffs.add(diff)){
+			// the child nodes have been added with it
+			return;
 		}
 		Node node = diff.getChild();
 		if(node instanceof TagNode){
@@ -392,20 +891,31 @@ public class ThreeWayRichTextDiff {
 	
 	/**
 	 * finds the {@link RichTextDiff} which contains the given node in the given
-	 * list of {@link RichTextDiff}s.
+	 * {@link RichTextDiff}s.
 	 * 
 	 * @param node
 	 * @param allDiffs
+	 *            the diffs of the same side by their nodes
 	 * @return the {@link RichTextDiff} containing the given node or null if no
-	 *         {@link RichTextDiff} in the list contains the given node
+	 *         {@link RichTextDiff} contains the given node
+	 */
+	private RichTextDiff findDiffForNode(Node node, Map<Node, RichTextDiff> allDiffs){
+		return allDiffs.get(node);
+	}
+	
+	/**
+	 * @param diffs
+	 *            the diffs of one side
+	 * @return the first diff of each node of the given diffs
 	 */
-	private RichTextDiff findDiffForNode(Node node, List<RichTextDiff> allDiffs){
-		for(RichTextDiff diff : allDiffs){
-			if(diff.getChild() == node){
-				return diff;
+	private static Map<Node, RichTextDiff> getDiffsByNode(List<RichTextDiff> diffs) {
+		Map<Node, RichTextDiff> diffsByNode = new IdentityHashMap<Node, RichTextDiff>();
+		for (RichTextDiff diff : diffs) {
+			if (!diffsByNode.containsKey(diff.getChild())) {
+				diffsByNode.put(diff.getChild(), diff);
 			}
 		}
-		return null;
+		return diffsByNode;
 	}
 	
 	/**
@@ -416,6 +926,12 @@ public class ThreeWayRichTextDiff {
 	 * @return the number of preceeding siblings that have not been added.
 	 */
 	private int countPreceedingSiblingsWithoutInsertions( Node node ){
+		if (node instanceof RTNode) {
+			int precedingSiblings = ((RTNode) node).countPrecedingSiblingsWithoutInsertions();
+			if (precedingSiblings != -1) {
+				return precedingSiblings;
+			}
+		}
 		int counter = 0;
 		
 		TagNode parent = node.getParent();
@@ -448,72 +964,17 @@ public class ThreeWayRichTextDiff {
 	 * 
 	 * @param parentTable
 	 *            the table to check
+	 * @param tables
+	 *            the already summarized tables of this conflict detection
 	 * @return true if at least one column has been changed, false otherwise
 	 */
-	private boolean hasTableColumnChanged(TagNode parentTable) {
-		
-		int numRows = 0;
-		int colIndex = 0;
-		
-		Map<Integer, Integer> changedCellsInCol = new HashMap<Integer, Integer>();
-		
-		Stack<TagNode> iterationStack = new Stack<TagNode>();
-		iterationStack.push(parentTable);
-		
-		// iterate over the DOM-tree and count the number of rows and changed
-		// cells in each row
-		while(!iterationStack.isEmpty()){
-			TagNode node = iterationStack.pop();
-			String qName = node.getQName();
-			
-			if(qName.equals("tr")){
-				
-				numRows++;
-				colIndex = 0;
-				
-			}else if(qName.equals("td")){
-				
-				if (node instanceof RTTagNode
-						&& !((RTTagNode) node).getModification().getType()
-								.equals(ModificationType.NONE)) {
-					
-					if(changedCellsInCol.containsKey(colIndex)){
-						
-						int prevCount = changedCellsInCol.get(colIndex);
-						prevCount++;
-						changedCellsInCol.put(colIndex, prevCount);
-						
-					}else{
-						changedCellsInCol.put(colIndex, 1);
-					}
-					
-				}
-				colIndex++;
-				
-			}
-			
-			if (!qName.equals("td")) {
-				// we don't iterate deeper than the first table cell, as we
-				// don't want to count rows and cells inside other table cells
-				for(Node childNode : node){
-					
-					if(childNode instanceof TagNode){
-						iterationStack.push((TagNode)childNode);
-					}
-					
-				}
-			}
-		}
-		
-		for(Entry<Integer, Integer> column : changedCellsInCol.entrySet()){
-			
-			if(column.getValue() == numRows){
-				return true;
-			}
-			
+	private boolean hasTableColumnChanged(TagNode parentTable, Map<TagNode, TableChanges> tables) {
+		TableChanges changes = tables.get(parentTable);
+		if (changes == null) {
+			changes = new TableChanges(parentTable);
+			tables.put(parentTable, changes);
 		}
-		
-		return false;
+		return changes.hasChangedColumn();
 	}
 
 	/**
@@ -613,6 +1074,8 @@ public class ThreeWayRichTextDiff {
 		 * call and so do not need to be handled any more.
 		 */
 		List<Node> addedNodes = new ArrayList<Node>();
+		// the matches of the right parents in the whole left tree
+		NodeIndex leftNodes = new NodeIndex(leftComparator.getBodyNode(), matchRatios);
 		for (RichTextThreeWayDiff threeWayDiff : threeWayDifferences) {
 
 			// TODO The code currently merges rtl. Add logic for ltr merge.
@@ -638,9 +1101,8 @@ public class ThreeWayRichTextDiff {
 					|| conflictingStructuralDiffs.contains(rightDiff)) {
 				continue;
 			}
-			TagNode root = leftComparator.getBodyNode();
 			TagNode rightParent = rightDiff.getChild().getParent();
-			TagNode leftParent = (TagNode) findNode(root, rightParent);
+			TagNode leftParent = (TagNode) leftNodes.findNode(rightParent);
 			if (!(leftParent instanceof RTNode)) {
 				// XXX - return?
 				continue;
@@ -648,7 +1110,12 @@ public class ThreeWayRichTextDiff {
 
 			switch (rightDiff.getModification().getType()) {
 			case ADDED: {
-				addNode((RTNode) leftParent, rightDiff.getChild(), addedNodes);
+				Node clone = addNode((RTNode) leftParent, rightDiff.getChild(), addedNodes);
+				if (clone != null) {
+					// the texts of the ancestors of the clone have changed
+					matchRatios.clearAncestors(clone);
+					leftNodes.addSubtree(clone);
+				}
 				break;
 			}
 			case REMOVED: {
@@ -674,8 +1141,21 @@ public class ThreeWayRichTextDiff {
 
 		getDeletedNodes(root, nodesToRemove);
 
+		// remove the nodes of each parent at once
+		Map<TagNode, List<Node>> nodesByParent = new IdentityHashMap<TagNode, List<Node>>();
 		for (Node node : nodesToRemove) {
-			deleteNodeFromParentList(node);
+			if (node == null || node.getParent() == null) {
+				continue;
+			}
+			List<Node> siblings = nodesByParent.get(node.getParent());
+			if (siblings == null) {
+				siblings = new ArrayList<Node>();
+				nodesByParent.put(node.getParent(), siblings);
+			}
+			siblings.add(node);
+		}
+		for (Entry<TagNode, List<Node>> entry : nodesByParent.entrySet()) {
+			entry.getKey().removeChildren(entry.getValue());
 		}
 
 	}
@@ -693,19 +1173,6 @@ public class ThreeWayRichTextDiff {
 		}
 	}
 
-	private void deleteNodeFromParentList(Node node) {
-		if (node == null) {
-			return;
-		}
-		TagNode directParent = node.getParent();
-		if (directParent == null) {
-			return;
-		}
-		node.setParent(null);
-		List<Node> children = getChildren(directParent);
-		children.remove(node);
-	}
-
 	/**
 	 * @param searchNode
 	 *            the {@link TagNode} that needs to be found
@@ -715,7 +1182,7 @@ public class ThreeWayRichTextDiff {
 	 *         with the given root
 	 */
 	private Node findNode(Node root, Node searchNode) {
-		if(root instanceof RTNode && ((RTNode) root).isSameNode(searchNode)){
+		if(root instanceof RTNode && ((RTNode) root).isSameNode(searchNode, matchRatios)){
 			return root;
 		}
 		if(root instanceof TagNode){
@@ -734,28 +1201,6 @@ public class ThreeWayRichTextDiff {
 
 	}
 
-	@SuppressWarnings("unchecked")
-	private List<Node> getChildren(TagNode directParent) {
-		try {
-			Field field = TagNode.class.getDeclaredField("children");
-			field.setAccessible(true);
-			return (List<Node>) field.get(directParent);
-		} catch (NoSuchFieldException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (SecurityException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IllegalArgumentException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IllegalAccessException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		return null;
-	}
-
 	/**
 	 * adds a node of one version to the given new parent. This method requires
 	 * that any preceding sibling with the {@link ModificationType#ADDED} of the
@@ -765,10 +1210,11 @@ public class ThreeWayRichTextDiff {
 	 * @param newParent
 	 * @param child
 	 * @param resolvedNodes
+	 * @return the added copy of the node, or null if it could not be added
 	 */
-	private void addNode(RTNode newParent, Node child, List<Node> resolvedNodes) {
+	private Node addNode(RTNode newParent, Node child, List<Node> resolvedNodes) {
 		if (!(newParent instanceof TagNode) || !(child.getParent() instanceof RTNode))
-			return;
+			return null;
 
 		TagNode newParentTag = (TagNode) newParent;
 		TagNode oldParent = child.getParent();
@@ -814,7 +1260,7 @@ public class ThreeWayRichTextDiff {
 								ModificationType.ADDED)) + 1;
 			}else{
 				// We cannot determine the insertion index in this case
-				return;
+				return null;
 			}
 		}
 
@@ -830,11 +1276,16 @@ public class ThreeWayRichTextDiff {
 
 		int nbChildren = newParentTag.getNbChildren();
 		if (index > nbChildren) {
-			newParentTag.addChild(nbChildren, clone);
+			index = nbChildren;
+		}
+		if (newParent instanceof RTTagNode) {
+			((RTTagNode) newParent).addMergedChild(index, clone);
+		} else if (newParent instanceof RTBodyNode) {
+			((RTBodyNode) newParent).addMergedChild(index, clone);
 		} else {
-			newParentTag.addChild(index, clone);
+			return null;
 		}
-
+		return clone;
 	}
 	
 	/**
@@ -944,4 +1395,73 @@ public class ThreeWayRichTextDiff {
 		return sibling;
 	}
 
+	/**
+	 * Groups the diffs of the right version by a tag, e.g. their parent, and
+	 * finds the tags which are the same as a tag of the left version. The tags
+	 * are looked up by keys which two tags share whenever
+	 * {@link RTNode#isSameNode(Node, MatchRatioCache)} holds for them:
+	 * <ul>
+	 * <li>the texts for a match ratio of 0</li>
+	 * <li>otherwise the index among the siblings and the number of siblings</li>
+	 * </ul>
+	 * So only the tags with a common key are compared.
+	 */
+	private final class TagGroups {
+
+		private final Map<TagNode, List<RichTextDiff>> diffsByTag = new IdentityHashMap<TagNode, List<RichTextDiff>>();
+
+		private final Map<String, List<TagNode>> tagsByKey = new HashMap<String, List<TagNode>>();
+
+		void add(RTTagNode tag, RichTextDiff diff) {
+			List<RichTextDiff> diffs = diffsByTag.get(tag);
+			if (diffs == null) {
+				diffs = new ArrayList<RichTextDiff>();
+				diffsByTag.put(tag, diffs);
+				for (String key : getKeys(tag)) {
+					List<TagNode> tags = tagsByKey.get(key);
+					if (tags == null) {
+						tags = new ArrayList<TagNode>(1);
+						tagsByKey.put(key, tags);
+					}
+					tags.add(tag);
+				}
+			}
+			diffs.add(diff);
+		}
+
+		/**
+		 * @return the grouped tags which are the same as the given tag, with
+		 *         their diffs
+		 */
+		Map<TagNode, List<RichTextDiff>> getSameTags(RTTagNode tag) {
+			Map<TagNode, List<RichTextDiff>> sameTags = new IdentityHashMap<TagNode, List<RichTextDiff>>();
+			for (String key : getKeys(tag)) {
+				List<TagNode> tags = tagsByKey.get(key);
+				if (tags == null) {
+					continue;
+				}
+				for (TagNode other : tags) {
+					if (!sameTags.containsKey(other) && tag.isSameNode(other, matchRatios)) {
+						sameTags.put(other, diffsByTag.get(other));
+					}
+				}
+			}
+			return sameTags;
+		}
+
+		private List<String> getKeys(RTTagNode tag) {
+			List<String> keys = new ArrayList<String>(2);
+			String textKey = matchRatios.getTextKey(tag);
+			if (textKey != null) {
+				keys.add("<" + tag.getQName() + "=" + textKey);
+			}
+			int index = tag.getIndexWithoutInsertions();
+			if (index != -1) {
+				int siblings = ((RTNode) tag.getParent()).getListOfChildrenWithoutInsertions().size();
+				keys.add("<" + tag.getQName() + "#" + index + "/" + siblings);
+			}
+			return keys;
+		}
+	}
+
 }
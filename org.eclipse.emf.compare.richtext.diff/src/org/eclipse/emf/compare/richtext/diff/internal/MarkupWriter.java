@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+/**
+ * Writes SAX events as markup to a {@link Writer}, without JAXP. The output is
+ * the same as the one of an identity transformer with the XML output method,
+ * but without the XML declaration: elements without content are written as
+ * empty elements, and text and attribute values are escaped the same way.
+ * Characters outside the Basic Multilingual Plane are written as a single
+ * character reference, like the identity transformer does. Only carriage
+ * returns in text are always written as character references, so they
+ * survive the line end normalization of a parser.
+ * <p>
+ * The markup is escaped into a buffer which is reused for all events and
+ * written to the writer when it is full and at the end of the document.
+ * Errors of the writer are reported as {@link SAXException}s wrapping the
+ * {@link IOException}.
+ */
+public class MarkupWriter implements ContentHandler {
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator"); //$NON-NLS-1$
+
+	private final Writer writer;
+
+	private final char[] buffer = new char[8192];
+
+	private int length;
+
+	/** whether the last start tag still has to be closed */
+	private boolean startTagOpen;
+
+	public MarkupWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Writes the buffered markup to the writer and flushes it.
+	 *
+	 * @throws IOException
+	 *             if the writer fails
+	 */
+	public void flush() throws IOException {
+		writer.write(buffer, 0, length);
+		length = 0;
+		writer.flush();
+	}
+
+	public void setDocumentLocator(Locator locator) {
+		// not needed
+	}
+
+	public void startDocument() throws SAXException {
+		length = 0;
+		startTagOpen = false;
+	}
+
+	public void endDocument() throws SAXException {
+		try {
+			flush();
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	public void startPrefixMapping(String prefix, String uri) throws SAXException {
+		// namespaces are not written
+	}
+
+	public void endPrefixMapping(String prefix) throws SAXException {
+		// namespaces are not written
+	}
+
+	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+		closeStartTag();
+		append('<');
+		append(qName);
+		for (int i = 0; i < atts.getLength(); i++) {
+			append(' ');
+			append(atts.getQName(i));
+			append("=\""); //$NON-NLS-1$
+			appendAttributeValue(atts.getValue(i));
+			append('"');
+		}
+		startTagOpen = true;
+	}
+
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		if (startTagOpen) {
+			append("/>"); //$NON-NLS-1$
+			startTagOpen = false;
+		} else {
+			append("</"); //$NON-NLS-1$
+			append(qName);
+			append('>');
+		}
+	}
+
+	public void characters(char[] ch, int start, int count) throws SAXException {
+		if (count == 0) {
+			return;
+		}
+		closeStartTag();
+		int end = start + count;
+		for (int i = start; i < end; i++) {
+			char c = ch[i];
+			switch (c) {
+			case '<':
+				append("&lt;"); //$NON-NLS-1$
+				break;
+			case '>':
+				append("&gt;"); //$NON-NLS-1$
+				break;
+			case '&':
+				append("&amp;"); //$NON-NLS-1$
+				break;
+			case '\n':
+				append(LINE_SEPARATOR);
+				break;
+			case '\r':
+				append("&#13;"); //$NON-NLS-1$
+				break;
+			default:
+				if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(ch[i + 1])) {
+					appendCharacterReference(Character.toCodePoint(c, ch[++i]));
+				} else {
+					appendCharacter(c, true);
+				}
+			}
+		}
+	}
+
+	public void ignorableWhitespace(char[] ch, int start, int count) throws SAXException {
+		characters(ch, start, count);
+	}
+
+	public void processingInstruction(String target, String data) throws SAXException {
+		// not part of the merged markup
+	}
+
+	public void skippedEntity(String name) throws SAXException {
+		// not part of the merged markup
+	}
+
+	private void closeStartTag() throws SAXException {
+		if (startTagOpen) {
+			append('>');
+			startTagOpen = false;
+		}
+	}
+
+	private void appendAttributeValue(String value) throws SAXException {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '<':
+				append("&lt;"); //$NON-NLS-1$
+				break;
+			case '>':
+				append("&gt;"); //$NON-NLS-1$
+				break;
+			case '&':
+				append("&amp;"); //$NON-NLS-1$
+				break;
+			case '"':
+				append("&quot;"); //$NON-NLS-1$
+				break;
+			case '\n':
+				append("&#10;"); //$NON-NLS-1$
+				break;
+			case '\r':
+				append("&#13;"); //$NON-NLS-1$
+				break;
+			case '\t':
+				append("&#9;"); //$NON-NLS-1$
+				break;
+			default:
+				if (Character.isHighSurrogate(c) && i + 1 < value.length()
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					appendCharacterReference(Character.toCodePoint(c, value.charAt(++i)));
+				} else {
+					appendCharacter(c, false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Appends a character which needs no entity. Control characters are
+	 * written as character references, the C1 controls only in text.
+	 */
+	private void appendCharacter(char c, boolean text) throws SAXException {
+		if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || (text && c >= 0x7f && c <= 0x9f)) {
+			appendCharacterReference(c);
+		} else {
+			append(c);
+		}
+	}
+
+	private void appendCharacterReference(int codePoint) throws SAXException {
+		append("&#"); //$NON-NLS-1$
+		append(Integer.toString(codePoint));
+		append(';');
+	}
+
+	private void append(char c) throws SAXException {
+		if (length == buffer.length) {
+			writeBuffer();
+		}
+		buffer[length++] = c;
+	}
+
+	private void append(String text) throws SAXException {
+		int offset = 0;
+		while (offset < text.length()) {
+			if (length == buffer.length) {
+				writeBuffer();
+			}
+			int count = Math.min(text.length() - offset, buffer.length - length);
+			text.getChars(offset, offset + count, buffer, length);
+			length += count;
+			offset += count;
+		}
+	}
+
+	private void writeBuffer() throws SAXException {
+		try {
+			writer.write(buffer, 0, length);
+			length = 0;
+		} catch (IOException e) {
+			throw new SAXException(e);
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.internal;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.outerj.daisy.diff.html.ancestor.TextOnlyComparator;
+import org.outerj.daisy.diff.html.dom.Node;
+import org.outerj.daisy.diff.html.dom.TagNode;
+import org.outerj.daisy.diff.html.dom.TextNode;
+
+/**
+ * Remembers the match ratios of pairs of {@link TagNode}s during a single
+ * merge, so that {@link RTNode#isSameNode(Node, MatchRatioCache)} does not
+ * recompute them for the same pair of nodes.
+ * <p>
+ * Additionally a 64 bit fingerprint of the texts in each subtree is kept. Two
+ * subtrees with the same fingerprint have the same texts in the same order,
+ * so their match ratio is 0 without computing a longest common subsequence.
+ * <p>
+ * The cached values are only valid as long as the texts of the subtrees do
+ * not change, so {@link #clearAncestors(Node)} has to be called after adding
+ * a node and {@link #clear()} after removing nodes. Instances are not thread
+ * safe.
+ */
+public class MatchRatioCache {
+
+	/** the multiplier of the polynomial hash over the texts of a subtree */
+	private static final long PRIME = 1099511628211L;
+
+	private final Map<TagNode, Map<TagNode, Double>> matchRatios = new IdentityHashMap<TagNode, Map<TagNode, Double>>();
+
+	/** the nodes which have a match ratio with a node, by that node */
+	private final Map<TagNode, Set<TagNode>> comparedNodes = new IdentityHashMap<TagNode, Set<TagNode>>();
+
+	private final Map<TagNode, Fingerprint> fingerprints = new IdentityHashMap<TagNode, Fingerprint>();
+
+	private long hits;
+
+	private long misses;
+
+	private long fingerprintMatches;
+
+	/**
+	 * Returns the match ratio of two nodes, which is the same as
+	 * <code>node.getMatchRatio(other)</code>.
+	 *
+	 * @param node
+	 *            the node to compute the match ratio for
+	 * @param other
+	 *            the node to compare with
+	 * @return the match ratio of the nodes
+	 */
+	public double getMatchRatio(TagNode node, TagNode other) {
+		Map<TagNode, Double> ratios = matchRatios.get(node);
+		if (ratios == null) {
+			ratios = new IdentityHashMap<TagNode, Double>();
+			matchRatios.put(node, ratios);
+		}
+		Double ratio = ratios.get(other);
+		if (ratio != null) {
+			hits++;
+			return ratio.doubleValue();
+		}
+		misses++;
+
+		Fingerprint fingerprint = getFingerprint(node);
+		// the ratio of two nodes without texts is not a number
+		if (fingerprint.length > 0 && fingerprint.equals(getFingerprint(other))) {
+			fingerprintMatches++;
+			ratio = Double.valueOf(0);
+		} else {
+			ratio = Double.valueOf(node.getMatchRatio(other));
+		}
+		ratios.put(other, ratio);
+		Set<TagNode> nodes = comparedNodes.get(other);
+		if (nodes == null) {
+			// tags are equal if they are similar, so compare them by identity
+			nodes = Collections.newSetFromMap(new IdentityHashMap<TagNode, Boolean>());
+			comparedNodes.put(other, nodes);
+		}
+		nodes.add(node);
+		return ratio.doubleValue();
+	}
+
+	/**
+	 * Returns a key of the texts of a subtree. Two nodes whose match ratio is 0
+	 * have the same key.
+	 *
+	 * @param node
+	 *            the root of the subtree
+	 * @return the key of the texts, or null if the subtree has no texts
+	 */
+	public String getTextKey(TagNode node) {
+		Fingerprint fingerprint = getFingerprint(node);
+		if (fingerprint.length == 0) {
+			// the ratio of two nodes without texts is not a number
+			return null;
+		}
+		return Long.toHexString(fingerprint.hash) + ":" + fingerprint.length;
+	}
+
+	/**
+	 * Forgets all match ratios and fingerprints. The counters are kept.
+	 */
+	public void clear() {
+		matchRatios.clear();
+		comparedNodes.clear();
+		fingerprints.clear();
+	}
+
+	/**
+	 * Forgets the match ratios and fingerprints of the ancestors of the given
+	 * node, whose texts have changed by adding the node. The values of all
+	 * other nodes stay valid.
+	 *
+	 * @param node
+	 *            the added node
+	 */
+	public void clearAncestors(Node node) {
+		for (TagNode ancestor = node.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+			Map<TagNode, Double> ratios = matchRatios.remove(ancestor);
+			if (ratios != null) {
+				for (TagNode other : ratios.keySet()) {
+					comparedNodes.get(other).remove(ancestor);
+				}
+			}
+			Set<TagNode> nodes = comparedNodes.remove(ancestor);
+			if (nodes != null) {
+				for (TagNode other : nodes) {
+					matchRatios.get(other).remove(ancestor);
+				}
+			}
+			fingerprints.remove(ancestor);
+		}
+	}
+
+	/**
+	 * @return the number of match ratios which have been found in the cache
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of match ratios which had to be computed
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of computed match ratios which were 0 because of
+	 *         equal fingerprints
+	 */
+	public long getFingerprintMatches() {
+		return fingerprintMatches;
+	}
+
+	private Fingerprint getFingerprint(TagNode node) {
+		Fingerprint fingerprint = fingerprints.get(node);
+		if (fingerprint == null) {
+			// the texts in the same order as collected by TextOnlyComparator
+			long hash = 0;
+			long power = 1;
+			int length = 0;
+			for (Node child : node) {
+				if (child instanceof TagNode) {
+					Fingerprint childFingerprint = getFingerprint((TagNode) child);
+					hash = hash * childFingerprint.power + childFingerprint.hash;
+					power *= childFingerprint.power;
+					length += childFingerprint.length;
+				} else if (child instanceof TextNode) {
+					hash = hash * PRIME + hash(TextOnlyComparator.getTokenKey((TextNode) child));
+					power *= PRIME;
+					length++;
+				}
+			}
+			fingerprint = new Fingerprint(hash, power, length);
+			fingerprints.put(node, fingerprint);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * @return the 64 bit FNV-1a hash of the given text
+	 */
+	private static long hash(String text) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			hash = (hash ^ (c & 0xff)) * PRIME;
+			hash = (hash ^ (c >>> 8)) * PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * The polynomial hash of the texts of a subtree, which can be combined
+	 * with the hashes of the following subtrees: the hash of a sequence of
+	 * subtrees is <code>hash * following.power + following.hash</code>.
+	 */
+	private static final class Fingerprint {
+
+		final long hash;
+
+		/** PRIME to the power of length */
+		final long power;
+
+		final int length;
+
+		Fingerprint(long hash, long power, int length) {
+			this.hash = hash;
+			this.power = power;
+			this.length = length;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Fingerprint)) {
+				return false;
+			}
+			Fingerprint other = (Fingerprint) obj;
+			return hash == other.hash && length == other.length;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (hash ^ (hash >>> 32));
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.outerj.daisy.diff.html.dom.BodyNode;
+import org.outerj.daisy.diff.html.dom.Node;
+import org.outerj.daisy.diff.html.dom.TagNode;
+import org.outerj.daisy.diff.html.dom.TextNode;
+
+/**
+ * Finds the first node of a tree, in document order, which
+ * {@link RTNode#isSameNode(Node, MatchRatioCache)} considers to be the same
+ * as a node of another tree. The nodes are bucketed by a criterion which
+ * every node that is the same fulfills:
+ * <ul>
+ * <li>the qualified name for tags</li>
+ * <li>the text for texts</li>
+ * <li>the kind of node for bodies and white spaces</li>
+ * </ul>
+ * So only the nodes of a single bucket are compared, with the same result as
+ * comparing all nodes of the tree in document order.
+ * <p>
+ * The buckets are computed on first use. Nodes added to the tree afterwards
+ * have to be passed to {@link #addSubtree(Node)}, which inserts them into their
+ * buckets in document order.
+ */
+public class NodeIndex {
+
+	private final TagNode root;
+
+	private final MatchRatioCache matchRatios;
+
+	private Map<String, List<Node>> tags;
+
+	private Map<String, List<Node>> texts;
+
+	private List<Node> whiteSpaces;
+
+	private List<Node> bodies;
+
+	/**
+	 * @param root
+	 *            the root of the tree to search
+	 * @param matchRatios
+	 *            the match ratios of the current merge, may be null
+	 */
+	public NodeIndex(TagNode root, MatchRatioCache matchRatios) {
+		this.root = root;
+		this.matchRatios = matchRatios;
+	}
+
+	/**
+	 * @param searchNode
+	 *            the node to find
+	 * @return the first node of the tree which is the same as the given node,
+	 *         or null if there is none
+	 */
+	public Node findNode(Node searchNode) {
+		if (tags == null) {
+			build();
+		}
+		for (Node node : getCandidates(searchNode)) {
+			if (((RTNode) node).isSameNode(searchNode, matchRatios)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a node which has been inserted into the tree, together with its
+	 * descendants.
+	 *
+	 * @param node
+	 *            the inserted node
+	 */
+	public void addSubtree(Node node) {
+		if (tags == null) {
+			// the node is found when the buckets are computed
+			return;
+		}
+		List<Node> bucket = getBucket(node);
+		if (bucket != null) {
+			bucket.add(getInsertionIndex(bucket, node), node);
+		}
+		if (node instanceof TagNode) {
+			for (Node child : (TagNode) node) {
+				addSubtree(child);
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the first node of the bucket which follows the
+	 *         given node in document order
+	 */
+	private static int getInsertionIndex(List<Node> bucket, Node node) {
+		int low = 0;
+		int high = bucket.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (precedes(bucket.get(middle), node)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return true if the first node comes before the second node in document
+	 *         order, where a node comes before its descendants
+	 */
+	private static boolean precedes(Node node, Node other) {
+		List<Node> path = getPath(node);
+		List<Node> otherPath = getPath(other);
+		int depth = 0;
+		while (depth < path.size() && depth < otherPath.size() && path.get(depth) == otherPath.get(depth)) {
+			depth++;
+		}
+		if (depth == path.size() || depth == otherPath.size()) {
+			return depth == path.size() && depth < otherPath.size();
+		}
+		// the children of the last common ancestor, compared by identity as
+		// tags are equal if they are similar
+		for (Node child : (TagNode) path.get(depth - 1)) {
+			if (child == path.get(depth)) {
+				return true;
+			}
+			if (child == otherPath.get(depth)) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the ancestors of the node starting from the root, and the node
+	 */
+	private static List<Node> getPath(Node node) {
+		List<Node> path = new ArrayList<Node>(node.getParentTree());
+		path.add(node);
+		return path;
+	}
+
+	private List<Node> getCandidates(Node searchNode) {
+		List<Node> candidates = null;
+		if (searchNode instanceof BodyNode) {
+			candidates = bodies;
+		} else if (searchNode instanceof RTTagNode) {
+			candidates = tags.get(((TagNode) searchNode).getQName());
+		} else if (searchNode instanceof RTTextNode) {
+			candidates = texts.get(((TextNode) searchNode).getText());
+		} else if (searchNode instanceof RTWhiteSpaceNode) {
+			candidates = whiteSpaces;
+		}
+		if (candidates == null) {
+			return Collections.emptyList();
+		}
+		return candidates;
+	}
+
+	private void build() {
+		tags = new HashMap<String, List<Node>>();
+		texts = new HashMap<String, List<Node>>();
+		whiteSpaces = new ArrayList<Node>();
+		bodies = new ArrayList<Node>();
+		add(root);
+	}
+
+	private void add(Node node) {
+		List<Node> bucket = getBucket(node);
+		if (bucket != null) {
+			bucket.add(node);
+		}
+		if (node instanceof TagNode) {
+			for (Node child : (TagNode) node) {
+				add(child);
+			}
+		}
+	}
+
+	/**
+	 * @return the bucket of the given node of the tree, or null if the node is
+	 *         never searched for
+	 */
+	private List<Node> getBucket(Node node) {
+		if (node instanceof RTBodyNode) {
+			return bodies;
+		} else if (node instanceof RTTagNode) {
+			return getBucket(tags, ((TagNode) node).getQName());
+		} else if (node instanceof RTTextNode) {
+			return getBucket(texts, ((TextNode) node).getText());
+		} else if (node instanceof RTWhiteSpaceNode) {
+			return whiteSpaces;
+		}
+		return null;
+	}
+
+	private static List<Node> getBucket(Map<String, List<Node>> buckets, String key) {
+		List<Node> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<Node>(1);
+			buckets.put(key, bucket);
+		}
+		return bucket;
+	}
+
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.compare.richtext.diff.RichTextDiff;
+import org.outerj.daisy.diff.html.dom.Node;
+import org.outerj.daisy.diff.html.dom.TagNode;
+import org.outerj.daisy.diff.html.dom.TextNode;
+
+/**
+ * Finds the opposite diffs of the diffs of one side of a three-way
+ * difference among the diffs of the other side. The diffs are bucketed by a
+ * key which is cheap to compute and which is equal for all nodes that
+ * {@link RTNode#isSameNode(Node)} considers to be the same:
+ * <ul>
+ * <li>the qualified name for tags</li>
+ * <li>the text, the key of the parent tag and the index in the list of the
+ * parent's children without insertions for texts and white spaces</li>
+ * </ul>
+ * So {@link RTNode#isSameNode(Node)} only has to be called for the diffs in a
+ * single bucket. The result is the same as searching all diffs in their
+ * original order.
+ */
+public class OppositeDiffIndex {
+
+	private final List<RichTextDiff> diffs;
+
+	private final MatchRatioCache matchRatios;
+
+	private final boolean[] removed;
+
+	/** the bucket keys of the diffs, null if there is none */
+	private final String[] keys;
+
+	/** the indices of the diffs in each bucket, in ascending order */
+	private final Map<String, List<Integer>> buckets = new HashMap<String, List<Integer>>();
+
+	/** the indices of the diffs of nodes without a key, in ascending order */
+	private final List<Integer> unkeyed = new ArrayList<Integer>();
+
+	/**
+	 * @param diffs
+	 *            the diffs to search for opposite diffs
+	 * @param matchRatios
+	 *            the match ratios of the current merge, may be null
+	 */
+	public OppositeDiffIndex(List<RichTextDiff> diffs, MatchRatioCache matchRatios) {
+		this.diffs = diffs;
+		this.matchRatios = matchRatios;
+		this.removed = new boolean[diffs.size()];
+		this.keys = new String[diffs.size()];
+		for (int i = 0; i < diffs.size(); i++) {
+			Node child = diffs.get(i).getChild();
+			if (!(child instanceof RTNode)) {
+				// never the same as any other node
+				continue;
+			}
+			String key = getKey(child);
+			keys[i] = key;
+			if (key == null) {
+				unkeyed.add(Integer.valueOf(i));
+			} else {
+				List<Integer> bucket = buckets.get(key);
+				if (bucket == null) {
+					bucket = new ArrayList<Integer>(1);
+					buckets.put(key, bucket);
+				}
+				bucket.add(Integer.valueOf(i));
+			}
+		}
+	}
+
+	/**
+	 * Finds the first remaining diff whose node is the same as the given node
+	 * and removes it from the index.
+	 *
+	 * @param node
+	 *            the node of the diff of the opposite side
+	 * @return the removed opposite diff, or null if there is none
+	 */
+	public RichTextDiff removeOppositeDiff(Node node) {
+		if (node == null) {
+			return null;
+		}
+		String key = getKey(node);
+		if (key == null) {
+			// no cheap criterion, so we have to check all remaining diffs
+			for (int i = 0; i < diffs.size(); i++) {
+				if (!removed[i] && isSameNode(i, node)) {
+					remove(i);
+					return diffs.get(i);
+				}
+			}
+			return null;
+		}
+
+		List<Integer> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<Integer>(0);
+		}
+		// visit the bucket and the diffs without a key in their original order
+		int bucketPos = 0;
+		int unkeyedPos = 0;
+		while (bucketPos < bucket.size() || unkeyedPos < unkeyed.size()) {
+			int index;
+			if (unkeyedPos >= unkeyed.size()
+					|| (bucketPos < bucket.size() && bucket.get(bucketPos).intValue() < unkeyed.get(unkeyedPos)
+							.intValue())) {
+				index = bucket.get(bucketPos++).intValue();
+			} else {
+				index = unkeyed.get(unkeyedPos++).intValue();
+			}
+			if (isSameNode(index, node)) {
+				remove(index);
+				return diffs.get(index);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the diffs which have not been removed, in their original order
+	 */
+	public List<RichTextDiff> getRemainingDiffs() {
+		List<RichTextDiff> remaining = new ArrayList<RichTextDiff>();
+		for (int i = 0; i < diffs.size(); i++) {
+			if (!removed[i]) {
+				remaining.add(diffs.get(i));
+			}
+		}
+		return remaining;
+	}
+
+	private boolean isSameNode(int index, Node node) {
+		Node child = diffs.get(index).getChild();
+		return child instanceof RTNode && ((RTNode) child).isSameNode(node, matchRatios);
+	}
+
+	private void remove(int index) {
+		removed[index] = true;
+		List<Integer> list = keys[index] == null ? unkeyed : buckets.get(keys[index]);
+		list.remove(Integer.valueOf(index));
+	}
+
+	/**
+	 * @return the bucket key of the given node, or null if the node has no
+	 *         cheap criterion for {@link RTNode#isSameNode(Node)}
+	 */
+	private static String getKey(Node node) {
+		if (node instanceof RTBodyNode) {
+			return "body";
+		}
+		if (node instanceof RTTagNode) {
+			return "<" + ((TagNode) node).getQName();
+		}
+		if (node instanceof RTTextNode) {
+			String position = getPosition(node);
+			return position == null ? null : "T" + position + ":" + ((TextNode) node).getText();
+		}
+		if (node instanceof RTWhiteSpaceNode) {
+			String position = getPosition(node);
+			return position == null ? null : "W" + position;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the key of the parent and the index of the node in the list of
+	 *         the parent's children without insertions, or null if the parent
+	 *         has no key
+	 */
+	private static String getPosition(Node node) {
+		TagNode parent = node.getParent();
+		if (!(parent instanceof RTBodyNode || parent instanceof RTTagNode)) {
+			return null;
+		}
+		int index = ((RTNode) node).getIndexWithoutInsertions();
+		return getKey(parent) + "#" + index;
+	}
+
+}
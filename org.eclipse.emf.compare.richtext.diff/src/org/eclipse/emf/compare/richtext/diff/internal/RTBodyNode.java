@@ -11,27 +11,20 @@
 
 package org.eclipse.emf.compare.richtext.diff.internal;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.List;
 
 import org.outerj.daisy.diff.html.dom.BodyNode;
 import org.outerj.daisy.diff.html.dom.Node;
-import org.outerj.daisy.diff.html.dom.TagNode;
-import org.outerj.daisy.diff.html.dom.TextNode;
 import org.outerj.daisy.diff.html.modification.Modification;
 import org.outerj.daisy.diff.html.modification.ModificationType;
 
 public class RTBodyNode extends BodyNode implements RTNode {
 
 	private Modification modification;
-	/** the list of children nodes retrieved from the superclass */
-	private List<Node> _children;
 	private ArrayList<Node> childrenNoInsertions;
 
 	public RTBodyNode() {
 		super();
-		this._children = getChildrenPrivate();
 		// body nodes can't be modified
 		modification = new Modification(ModificationType.NONE, ModificationType.NONE);
 	}
@@ -49,6 +42,11 @@ public class RTBodyNode extends BodyNode implements RTNode {
 
 	@Override
 	public boolean isSameNode(Node node) {
+		return isSameNode(node, null);
+	}
+
+	@Override
+	public boolean isSameNode(Node node, MatchRatioCache matchRatios) {
 		if (this == node) {
 			return true;
 		}
@@ -68,59 +66,50 @@ public class RTBodyNode extends BodyNode implements RTNode {
 	@Override
 	public ArrayList<Node> getListOfChildrenWithoutInsertions() {
 		if (childrenNoInsertions == null) {
-			childrenNoInsertions = new ArrayList<Node>();
 			// if the current node is an insertion, all it's children are
 			// insertions as well (we don't support MOVE)
-			if (getModification().getType() == ModificationType.ADDED) {
-				return childrenNoInsertions;
-			}
-			for (Node child : this) {
-				if (isInsert(child)) {
-					continue;
-				}
-				childrenNoInsertions.add(child);
-			}
+			childrenNoInsertions = SiblingPosition.computeChildrenWithoutInsertions(this,
+					getModification().getType() == ModificationType.ADDED);
 		}
 		return childrenNoInsertions;
 	}
 
-	private boolean isInsert(Node node) {
-		if (node instanceof RTTagNode) {
-			return ((RTTagNode) node).getModification().getType() == ModificationType.ADDED;
-		}
-		if (node instanceof TextNode) {
-			return ((TextNode) node).getModification().getType() == ModificationType.ADDED;
-		}
-		return false;
+	@Override
+	public void invalidateChildrenWithoutInsertions() {
+		childrenNoInsertions = null;
 	}
-	
-	@SuppressWarnings("unchecked")
-	private List<Node> getChildrenPrivate() {
-		try {
-			Field field = TagNode.class.getDeclaredField("children");
-			field.setAccessible(true);
-			return (List<Node>) field.get(this);
-		} catch (NoSuchFieldException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (SecurityException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IllegalArgumentException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IllegalAccessException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		return null;
+
+	@Override
+	protected void childrenChanged() {
+		invalidateChildrenWithoutInsertions();
 	}
 
 	/**
-	 * @return the _children
+	 * Adds a child merged from another version. If the list of children
+	 * without insertions has already been computed, it is kept, so the
+	 * merged child does not shift the indices of the nodes that are matched
+	 * later during the merge.
 	 */
-	public List<Node> getChildren() {
-		return _children;
+	public void addMergedChild(int index, Node node) {
+		ArrayList<Node> siblings = childrenNoInsertions;
+		addChild(index, node);
+		childrenNoInsertions = siblings;
+	}
+
+	@Override
+	public int getIndexWithoutInsertions() {
+		// body nodes have no siblings
+		return -1;
+	}
+
+	@Override
+	public int countPrecedingSiblingsWithoutInsertions() {
+		return -1;
+	}
+
+	@Override
+	public void setSiblingPosition(SiblingPosition position) {
+		// body nodes have no siblings
 	}
 
 }
\ No newline at end of file
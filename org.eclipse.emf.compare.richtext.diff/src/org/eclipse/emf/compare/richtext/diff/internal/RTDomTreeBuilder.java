@@ -26,6 +26,7 @@ import org.outerj.daisy.diff.html.dom.Node;
 import org.outerj.daisy.diff.html.dom.SeparatingNode;
 import org.outerj.daisy.diff.html.dom.TagNode;
 import org.outerj.daisy.diff.html.dom.TextNode;
+import org.outerj.daisy.diff.html.dom.TokenTable;
 import org.outerj.daisy.diff.html.dom.WhiteSpaceNode;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -65,6 +66,24 @@ public class RTDomTreeBuilder extends DefaultHandler implements DomTree {
 
 	private Node lastSibling = null;
 
+	private final TokenTable tokenTable;
+
+	/**
+	 * Creates a builder with its own {@link TokenTable}.
+	 */
+	public RTDomTreeBuilder() {
+		this(new TokenTable());
+	}
+
+	/**
+	 * @param tokenTable
+	 *            the table to intern the text nodes in, which should be shared
+	 *            with the builders of the trees to compare with
+	 */
+	public RTDomTreeBuilder(TokenTable tokenTable) {
+		this.tokenTable = tokenTable;
+	}
+
 	@Override
 	public BodyNode getBodyNode() {
 		return bodyNode;
@@ -75,6 +94,10 @@ public class RTDomTreeBuilder extends DefaultHandler implements DomTree {
 		return textNodes;
 	}
 
+	public TokenTable getTokenTable() {
+		return tokenTable;
+	}
+
 	@Override
 	public void startDocument() throws SAXException {
 		if (documentStarted)
@@ -135,7 +158,7 @@ public class RTDomTreeBuilder extends DefaultHandler implements DomTree {
 				ImageNode img = new ImageNode(currentParent, currentParent.getAttributes());
 				img.setWhiteBefore(whiteSpaceBeforeThis);
 				lastSibling = img;
-				textNodes.add(img);
+				addTextNode(img);
 			}
 			endWord();
 			if (currentParent.isInline()) {
@@ -152,7 +175,7 @@ public class RTDomTreeBuilder extends DefaultHandler implements DomTree {
 			if (currentParent instanceof RTTagNode
 					&& ((RTTagNode) currentParent).getChildren().isEmpty()) {
 				RTEmptyTextNode emptyTextNode = new RTEmptyTextNode(currentParent);
-				textNodes.add(emptyTextNode);
+				addTextNode(emptyTextNode);
 			}
 			currentParent = currentParent.getParent();
 			whiteSpaceBeforeThis = false;
@@ -178,7 +201,7 @@ public class RTDomTreeBuilder extends DefaultHandler implements DomTree {
 					textNode.setWhiteBefore(whiteSpaceBeforeThis);
 					whiteSpaceBeforeThis = false;
 					lastSibling = textNode;
-					textNodes.add(textNode);
+					addTextNode(textNode);
 
 				}
 			} else {
@@ -188,13 +211,18 @@ public class RTDomTreeBuilder extends DefaultHandler implements DomTree {
 		}
 	}
 
+	private void addTextNode(TextNode node) {
+		tokenTable.intern(node);
+		textNodes.add(node);
+	}
+
 	private void endWord() {
 		if (newWord.length() > 0) {
 			TextNode node = new RTTextNode(currentParent, newWord.toString());
 			node.setWhiteBefore(whiteSpaceBeforeThis);
 			whiteSpaceBeforeThis = false;
 			lastSibling = node;
-			textNodes.add(node);
+			addTextNode(node);
 			newWord.setLength(0);
 		}
 	}
@@ -224,7 +252,7 @@ public class RTDomTreeBuilder extends DefaultHandler implements DomTree {
 			return;
 		}
 
-		textNodes.add(new SeparatingNode(currentParent));
+		addTextNode(new SeparatingNode(currentParent));
 	}
 
 	public static boolean isDelimiter(char c) {
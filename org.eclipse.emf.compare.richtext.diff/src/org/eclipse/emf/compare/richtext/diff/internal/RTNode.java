@@ -21,4 +21,28 @@ public interface RTNode extends RTNodeMatcher{
 	
 	public ArrayList<Node> getListOfChildrenWithoutInsertions();
 
+	/**
+	 * Forgets the list of children without insertions, which has to be done
+	 * whenever children are added or removed.
+	 */
+	public void invalidateChildrenWithoutInsertions();
+
+	/**
+	 * @return the index of this node in the list of its parent's children
+	 *         without insertions, or -1 if it is not contained in it
+	 */
+	public int getIndexWithoutInsertions();
+
+	/**
+	 * @return the number of preceding siblings which are not insertions, or -1
+	 *         if this node has no {@link RTNode} parent
+	 */
+	public int countPrecedingSiblingsWithoutInsertions();
+
+	/**
+	 * Called by the parent when it computes its list of children without
+	 * insertions.
+	 */
+	public void setSiblingPosition(SiblingPosition position);
+
 }
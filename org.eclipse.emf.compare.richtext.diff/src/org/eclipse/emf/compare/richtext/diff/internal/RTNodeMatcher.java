@@ -23,4 +23,14 @@ public interface RTNodeMatcher {
 	 * @return <code>true</code> if the node is equal to the current object.
 	 */
 	boolean isSameNode(Node node);
+
+	/**
+	 * Same as {@link #isSameNode(Node)}, but looks up the match ratios of tags
+	 * in the given cache.
+	 * 
+	 * @param matchRatios
+	 *            the match ratios of the current merge, may be null
+	 * @return <code>true</code> if the node is equal to the current object.
+	 */
+	boolean isSameNode(Node node, MatchRatioCache matchRatios);
 }
@@ -11,11 +11,7 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.richtext.diff.internal;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.List;
 
 import org.outerj.daisy.diff.html.dom.Node;
 import org.outerj.daisy.diff.html.dom.TagNode;
@@ -30,19 +26,22 @@ public class RTTagNode extends TagNode implements RTNode {
 
 	Modification modification;
 
-	/** the list of children nodes retrieved from the superclass */
-	private List<Node> _children;
-
 	private ArrayList<Node> childrenNoInsertions;
 
+	private SiblingPosition siblingPosition;
+
 	public RTTagNode(TagNode parent, String qName, Attributes attributesarg) {
 		super(parent, qName, attributesarg);
-		this._children = getChildrenPrivate();
 		modification = new Modification(ModificationType.NONE, ModificationType.NONE);
 	}
 
 	@Override
 	public boolean isSameNode(Node node) {
+		return isSameNode(node, null);
+	}
+
+	@Override
+	public boolean isSameNode(Node node, MatchRatioCache matchRatios) {
 
 		if (this == node) {
 			return true;
@@ -59,7 +58,8 @@ public class RTTagNode extends TagNode implements RTNode {
 		}
 
 		// useful??
-		double matchRatio = getMatchRatio(tagNode);
+		double matchRatio = matchRatios == null ? getMatchRatio(tagNode) : matchRatios.getMatchRatio(this,
+				tagNode);
 		if (matchRatio > 0.5) {
 			return false;
 		}
@@ -70,8 +70,8 @@ public class RTTagNode extends TagNode implements RTNode {
 		ArrayList<Node> ourNeighbors = ((RTNode) getParent()).getListOfChildrenWithoutInsertions();
 		ArrayList<Node> otherNeighbors = ((RTNode) tagNode.getParent()).getListOfChildrenWithoutInsertions();
 
-		int thisIndexInParent = ourNeighbors.indexOf(this);
-		int otherIndexInParent = otherNeighbors.indexOf(tagNode);
+		int thisIndexInParent = getIndexWithoutInsertions();
+		int otherIndexInParent = tagNode.getIndexWithoutInsertions();
 
 		if (thisIndexInParent != otherIndexInParent || thisIndexInParent == -1) {
 			return false;
@@ -121,26 +121,25 @@ public class RTTagNode extends TagNode implements RTNode {
             part1.setParent(getParent());
             part2.setParent(getParent());
 
-            // FIXME maybe we should find a better solution to access the children
             int i = 0;
-            while (i < _children.size() && _children.get(i) != split) {
-                _children.get(i).setParent(part1);
-                part1.addChild(_children.get(i));
+            while (i < getNbChildren() && getChild(i) != split) {
+                getChild(i).setParent(part1);
+                part1.addChild(getChild(i));
                 i++;
             }
-            if (i < _children.size()) {//means we've found "split" node
+            if (i < getNbChildren()) {//means we've found "split" node
                 if (includeLeft) {
-                    _children.get(i).setParent(part1);
-                    part1.addChild(_children.get(i));
+                    getChild(i).setParent(part1);
+                    part1.addChild(getChild(i));
                 } else {
-                    _children.get(i).setParent(part2);
-                    part2.addChild(_children.get(i));
+                    getChild(i).setParent(part2);
+                    part2.addChild(getChild(i));
                 }
                 i++;
             }
-            while (i < _children.size()) {
-                _children.get(i).setParent(part2);
-                part2.addChild(_children.get(i));
+            while (i < getNbChildren()) {
+                getChild(i).setParent(part2);
+                part2.addChild(getChild(i));
                 i++;
             }
             if (part1.getNbChildren() > 0) {
@@ -158,46 +157,19 @@ public class RTTagNode extends TagNode implements RTNode {
             //since split isn't meant for no-children tags,
             //we won't have a case where we removed this and did not
             //substitute it with anything
-            detachFromParent();
+            TagNode oldParent = getParent();
+            oldParent.removeChild(oldParent.getIndexOf(this));
 
             if (includeLeft) {
-				getParent().splitUntill(parent, part1, includeLeft);
+				oldParent.splitUntill(parent, part1, includeLeft);
 			} else {
-				getParent().splitUntill(parent, part2, includeLeft);
+				oldParent.splitUntill(parent, part2, includeLeft);
 			}
         }
         return splitOccured;
 
     }
 	
-	/**
-	 * detaches this node from its parent node
-	 */
-	private void detachFromParent(){
-        // FIXME this is a quick & dirty hack, we really should find a better solution
-        Method removeMethod;
-		try {
-			removeMethod = TagNode.class.getDeclaredMethod("removeChild", Node.class );
-	        removeMethod.setAccessible(true);
-	        removeMethod.invoke(getParent(), this);
-		} catch (NoSuchMethodException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (SecurityException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IllegalAccessException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IllegalArgumentException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (InvocationTargetException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-	}
-	
 	// We have to override this to satisfy the condition that all RTTextNode
 	// only have RTNodes as parent, as the original implementation creates
 	// TagNodes instead of RTTagNodes
@@ -224,21 +196,35 @@ public class RTTagNode extends TagNode implements RTNode {
 	// */
 	public ArrayList<Node> getListOfChildrenWithoutInsertions() {
 		if (childrenNoInsertions == null) {
-			childrenNoInsertions = new ArrayList<Node>();
 			// if the current node is an insertion, all it's children are
 			// insertions as well (we don't support MOVE)
-			if (getModification().getType() == ModificationType.ADDED) {
-				return childrenNoInsertions;
-			}
-			for (Node child : this) {
-				if (isInsert(child)) {
-					continue;
-				}
-				childrenNoInsertions.add(child);
-			}
+			childrenNoInsertions = SiblingPosition.computeChildrenWithoutInsertions(this,
+					getModification().getType() == ModificationType.ADDED);
 		}
 		return childrenNoInsertions;
 	}
+
+	@Override
+	public void invalidateChildrenWithoutInsertions() {
+		childrenNoInsertions = null;
+	}
+
+	@Override
+	protected void childrenChanged() {
+		invalidateChildrenWithoutInsertions();
+	}
+
+	/**
+	 * Adds a child merged from another version. If the list of children
+	 * without insertions has already been computed, it is kept, so the
+	 * merged child does not shift the indices of the nodes that are matched
+	 * later during the merge.
+	 */
+	public void addMergedChild(int index, Node node) {
+		ArrayList<Node> siblings = childrenNoInsertions;
+		addChild(index, node);
+		childrenNoInsertions = siblings;
+	}
 	
 	// we have to override this method to use RTWhiteSpaceNodes instead of
 	// WhiteSpaceNodes, which are necessary for merge operations. 
@@ -279,16 +265,6 @@ public class RTTagNode extends TagNode implements RTNode {
         }
     }
 
-	private boolean isInsert(Node node) {
-		if (node instanceof RTTagNode) {
-			return ((RTTagNode) node).getModification().getType() == ModificationType.ADDED;
-		}
-		if (node instanceof TextNode) {
-			return ((TextNode) node).getModification().getType() == ModificationType.ADDED;
-		}
-		return false;
-	}
-
 	@Override
 	public Modification getModification() {
 		return modification;
@@ -296,35 +272,35 @@ public class RTTagNode extends TagNode implements RTNode {
 
 	public void setModification(Modification modification) {
 		this.modification = modification;
+		// insertions have no children without insertions and are not counted
+		// by their siblings
+		invalidateChildrenWithoutInsertions();
+		SiblingPosition.invalidateSiblings(this);
 	}
 
-	@SuppressWarnings("unchecked")
-	private List<Node> getChildrenPrivate() {
-		try {
-			Field field = TagNode.class.getDeclaredField("children");
-			field.setAccessible(true);
-			return (List<Node>) field.get(this);
-		} catch (NoSuchFieldException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (SecurityException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IllegalArgumentException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IllegalAccessException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		return null;
+	@Override
+	public int getIndexWithoutInsertions() {
+		SiblingPosition position = getSiblingPosition();
+		return position == null ? -1 : position.getIndex();
 	}
 
-	/**
-	 * @return the _children
-	 */
-	public List<Node> getChildren() {
-		return _children;
+	@Override
+	public int countPrecedingSiblingsWithoutInsertions() {
+		SiblingPosition position = getSiblingPosition();
+		return position == null ? -1 : position.getPrecedingSiblings();
+	}
+
+	@Override
+	public void setSiblingPosition(SiblingPosition position) {
+		this.siblingPosition = position;
+	}
+
+	private SiblingPosition getSiblingPosition() {
+		ArrayList<Node> siblings = SiblingPosition.getSiblings(this);
+		if (siblingPosition == null || !siblingPosition.isIn(siblings)) {
+			return null;
+		}
+		return siblingPosition;
 	}
 
 }
@@ -15,12 +15,15 @@ import java.util.ArrayList;
 import org.outerj.daisy.diff.html.dom.Node;
 import org.outerj.daisy.diff.html.dom.TagNode;
 import org.outerj.daisy.diff.html.dom.TextNode;
+import org.outerj.daisy.diff.html.modification.Modification;
 
 /**
  *
  */
 public class RTTextNode extends TextNode implements RTNode {
 
+	private SiblingPosition siblingPosition;
+
 	public RTTextNode(TagNode parent, String s) {
 		super(parent, s);
 		if (!(parent instanceof RTNode)) {
@@ -31,6 +34,11 @@ public class RTTextNode extends TextNode implements RTNode {
 
 	@Override
 	public boolean isSameNode(Node node) {
+		return isSameNode(node, null);
+	}
+
+	@Override
+	public boolean isSameNode(Node node, MatchRatioCache matchRatios) {
 		if (this == node) {
 			return true;
 		}
@@ -45,15 +53,11 @@ public class RTTextNode extends TextNode implements RTNode {
 			return false;
 
 		RTNode parent = (RTNode) getParent();
-		RTNode otherParent = (RTNode) textNode.getParent();
 		
-		if (!parent.isSameNode(textNode.getParent()))
+		if (!parent.isSameNode(textNode.getParent(), matchRatios))
 			return false;
 
-		int indexOfThis = parent.getListOfChildrenWithoutInsertions().indexOf(this);
-		int indexOfOther = otherParent.getListOfChildrenWithoutInsertions().indexOf(textNode);
-
-		return (indexOfThis == indexOfOther);
+		return getIndexWithoutInsertions() == textNode.getIndexWithoutInsertions();
 	}
 
 	@Override
@@ -62,6 +66,43 @@ public class RTTextNode extends TextNode implements RTNode {
 		return new ArrayList<Node>();
 	}
 
+	@Override
+	public void invalidateChildrenWithoutInsertions() {
+		// text nodes don't have children
+	}
+
+	@Override
+	public void setModification(Modification m) {
+		super.setModification(m);
+		// insertions are not counted by the siblings
+		SiblingPosition.invalidateSiblings(this);
+	}
+
+	@Override
+	public int getIndexWithoutInsertions() {
+		SiblingPosition position = getSiblingPosition();
+		return position == null ? -1 : position.getIndex();
+	}
+
+	@Override
+	public int countPrecedingSiblingsWithoutInsertions() {
+		SiblingPosition position = getSiblingPosition();
+		return position == null ? -1 : position.getPrecedingSiblings();
+	}
+
+	@Override
+	public void setSiblingPosition(SiblingPosition position) {
+		this.siblingPosition = position;
+	}
+
+	private SiblingPosition getSiblingPosition() {
+		ArrayList<Node> siblings = SiblingPosition.getSiblings(this);
+		if (siblingPosition == null || !siblingPosition.isIn(siblings)) {
+			return null;
+		}
+		return siblingPosition;
+	}
+
 	@Override
 	public void setParent(TagNode parent) {
 		super.setParent(parent);
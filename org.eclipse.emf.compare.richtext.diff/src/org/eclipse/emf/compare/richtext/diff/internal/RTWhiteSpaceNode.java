@@ -15,12 +15,15 @@ import java.util.ArrayList;
 import org.outerj.daisy.diff.html.dom.Node;
 import org.outerj.daisy.diff.html.dom.TagNode;
 import org.outerj.daisy.diff.html.dom.WhiteSpaceNode;
+import org.outerj.daisy.diff.html.modification.Modification;
 
 /**
  *
  */
 public class RTWhiteSpaceNode extends WhiteSpaceNode implements RTNode{
 
+	private SiblingPosition siblingPosition;
+
 	public RTWhiteSpaceNode(TagNode parent, String s) {
 		super(parent, s);
 	}
@@ -31,6 +34,11 @@ public class RTWhiteSpaceNode extends WhiteSpaceNode implements RTNode{
 
 	@Override
 	public boolean isSameNode(Node node) {
+		return isSameNode(node, null);
+	}
+
+	@Override
+	public boolean isSameNode(Node node, MatchRatioCache matchRatios) {
 		if (this == node) {
 			return true;
 		}
@@ -42,15 +50,11 @@ public class RTWhiteSpaceNode extends WhiteSpaceNode implements RTNode{
 		RTWhiteSpaceNode otherWhiteSpaceNode = (RTWhiteSpaceNode) node;
 
 		RTNode parent = (RTNode) getParent();
-		RTNode otherParent = (RTNode) otherWhiteSpaceNode.getParent();
 		
-		if (!parent.isSameNode(otherWhiteSpaceNode.getParent()))
+		if (!parent.isSameNode(otherWhiteSpaceNode.getParent(), matchRatios))
 			return false;
 
-		int indexOfThis = parent.getListOfChildrenWithoutInsertions().indexOf(this);
-		int indexOfOther = otherParent.getListOfChildrenWithoutInsertions().indexOf(otherWhiteSpaceNode);
-
-		return (indexOfThis == indexOfOther);
+		return getIndexWithoutInsertions() == otherWhiteSpaceNode.getIndexWithoutInsertions();
 	}
 
 	@Override
@@ -59,4 +63,41 @@ public class RTWhiteSpaceNode extends WhiteSpaceNode implements RTNode{
 		return new ArrayList<Node>();
 	}
 
+	@Override
+	public void invalidateChildrenWithoutInsertions() {
+		// white space nodes don't have children
+	}
+
+	@Override
+	public void setModification(Modification m) {
+		super.setModification(m);
+		// insertions are not counted by the siblings
+		SiblingPosition.invalidateSiblings(this);
+	}
+
+	@Override
+	public int getIndexWithoutInsertions() {
+		SiblingPosition position = getSiblingPosition();
+		return position == null ? -1 : position.getIndex();
+	}
+
+	@Override
+	public int countPrecedingSiblingsWithoutInsertions() {
+		SiblingPosition position = getSiblingPosition();
+		return position == null ? -1 : position.getPrecedingSiblings();
+	}
+
+	@Override
+	public void setSiblingPosition(SiblingPosition position) {
+		this.siblingPosition = position;
+	}
+
+	private SiblingPosition getSiblingPosition() {
+		ArrayList<Node> siblings = SiblingPosition.getSiblings(this);
+		if (siblingPosition == null || !siblingPosition.isIn(siblings)) {
+			return null;
+		}
+		return siblingPosition;
+	}
+
 }
@@ -29,10 +29,12 @@ import org.outerj.daisy.diff.html.dom.Node;
 import org.outerj.daisy.diff.html.dom.SeparatingNode;
 import org.outerj.daisy.diff.html.dom.TagNode;
 import org.outerj.daisy.diff.html.dom.TextNode;
+import org.outerj.daisy.diff.html.dom.TokenTable;
 import org.outerj.daisy.diff.html.dom.WhiteSpaceNode;
 import org.outerj.daisy.diff.html.modification.Modification;
 import org.outerj.daisy.diff.html.modification.ModificationType;
-import org.outerj.daisy.diff.output.DiffOutput;
+import org.outerj.daisy.diff.output.DetailedDiffOutput;
+import org.outerj.daisy.diff.output.DiffOutputDetail;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
@@ -43,24 +45,23 @@ public class RichTextDiffer {
 
 	private TextNodeComparator comparator;
 
-	public ArrayList<RichTextDiff> getDiffs(String baseContent, String newContent) {
-		Locale locale = Locale.getDefault();
-		HtmlCleaner cleaner = new HtmlCleaner();
+	private final HTMLDiffer.Mode mode;
 
-		InputSource oldSource = new InputSource(new StringReader(baseContent));
-		InputSource newSource = new InputSource(new StringReader(newContent));
+	public RichTextDiffer() {
+		this(HTMLDiffer.Mode.FLAT);
+	}
 
-		RTDomTreeBuilder oldHandler = new RTDomTreeBuilder();
+	/**
+	 * @param mode
+	 *            the way the texts of both versions are compared
+	 */
+	public RichTextDiffer(HTMLDiffer.Mode mode) {
+		this.mode = mode;
+	}
+
+	public ArrayList<RichTextDiff> getDiffs(String baseContent, String newContent) {
 		try {
-			cleaner.cleanAndParse(oldSource, oldHandler);
-			TextNodeComparator originComparator = new TextNodeComparator(oldHandler, locale);
-			RTDomTreeBuilder newHandler = new RTDomTreeBuilder();
-			cleaner.cleanAndParse(newSource, newHandler);
-			comparator = new TextNodeComparator(newHandler.getDomTreeCopy(), locale);
-			HTMLDiffer differ = new HTMLDiffer(new DummyOutput());
-			differ.diff(originComparator, comparator);
-			postProcess(originComparator, comparator, new TextNodeComparator(newHandler, locale)); // We use a new TextNodeComparator here because HTMLDiffer modifies the DomTree of the right comparator 
-			return getDiffs(comparator);
+			return computeDiffs(buildDomTree(baseContent), newContent);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -71,6 +72,88 @@ public class RichTextDiffer {
 		return null;
 	}
 
+	/**
+	 * Computes the differences between an already parsed base version and the
+	 * given new content. The tree of the base version is never modified, the
+	 * differ works on its own copy obtained by
+	 * {@link RTDomTreeBuilder#getDomTreeCopy()}. So the same base tree may be
+	 * passed to several differs, e.g. to both sides of a three-way diff, also
+	 * concurrently.
+	 * 
+	 * @param baseTree
+	 *            the parsed base version, see {@link #buildDomTree(String)}
+	 * @param newContent
+	 *            the new version
+	 * @return the differences
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	public ArrayList<RichTextDiff> computeDiffs(RTDomTreeBuilder baseTree, String newContent) throws IOException,
+			SAXException {
+		// intern the new texts in the same table, so texts are compared by id
+		return computeDiffs(baseTree, buildDomTree(newContent, baseTree.getTokenTable()));
+	}
+
+	/**
+	 * Same as {@link #computeDiffs(RTDomTreeBuilder, String)} for an already
+	 * parsed new version. The new tree has to be parsed with the token table
+	 * of the base tree, see {@link #buildDomTree(String, TokenTable)}, and is
+	 * modified by the differ.
+	 * 
+	 * @param baseTree
+	 *            the parsed base version
+	 * @param newHandler
+	 *            the parsed new version
+	 * @return the differences
+	 * @throws SAXException
+	 */
+	public ArrayList<RichTextDiff> computeDiffs(RTDomTreeBuilder baseTree, RTDomTreeBuilder newHandler)
+			throws SAXException {
+		Locale locale = Locale.getDefault();
+		TextNodeComparator originComparator = new TextNodeComparator(baseTree.getDomTreeCopy(), locale);
+		comparator = new TextNodeComparator(newHandler.getDomTreeCopy(), locale);
+		HTMLDiffer differ = new HTMLDiffer(new DummyOutput(), mode);
+		differ.diff(originComparator, comparator);
+		postProcess(originComparator, comparator, new TextNodeComparator(newHandler, locale)); // We use a new TextNodeComparator here because HTMLDiffer modifies the DomTree of the right comparator 
+		return getDiffs(comparator);
+	}
+
+	/**
+	 * Cleans and parses the given content into a tree of rich text nodes. The
+	 * returned tree can be shared by several calls of
+	 * {@link #computeDiffs(RTDomTreeBuilder, String)} as long as nobody else
+	 * modifies it.
+	 * 
+	 * @param content
+	 *            the HTML content to parse
+	 * @return the builder holding the parsed tree
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	public static RTDomTreeBuilder buildDomTree(String content) throws IOException, SAXException {
+		return buildDomTree(content, new TokenTable());
+	}
+
+	/**
+	 * Same as {@link #buildDomTree(String)}, but interns the texts in the
+	 * given table.
+	 * 
+	 * @param content
+	 *            the HTML content to parse
+	 * @param tokenTable
+	 *            the table shared with the trees to compare with
+	 * @return the builder holding the parsed tree
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	public static RTDomTreeBuilder buildDomTree(String content, TokenTable tokenTable) throws IOException,
+			SAXException {
+		HtmlCleaner cleaner = new HtmlCleaner();
+		RTDomTreeBuilder handler = new RTDomTreeBuilder(tokenTable);
+		cleaner.cleanAndParse(new InputSource(new StringReader(content)), handler);
+		return handler;
+	}
+
 	/** Adds modifications (insert, delete) to RTTagNodes.
 	 * @param comparator */
 	private void postProcess(TextNodeComparator leftComparator,
@@ -249,11 +332,8 @@ public class RichTextDiffer {
 		
 		// delete duplicated nodes created by daisydiff 
 		
-		for (Node node : nodesToDelete) {
-			if (annotatedNode instanceof RTTagNode) {
-				List<Node> children = ((RTTagNode)annotatedNode).getChildren();
-				children.remove(node);
-			}
+		if (annotatedNode instanceof RTTagNode) {
+			annotatedNode.removeChildren(nodesToDelete);
 		}
 		
 		return traversalState;
@@ -683,13 +763,19 @@ public class RichTextDiffer {
 	 * instance. The generateOutput method does nothing, since we are not
 	 * interested in outputting the diffs at the moment.
 	 */
-	private class DummyOutput implements DiffOutput {
+	private class DummyOutput implements DetailedDiffOutput {
 
 		@Override
 		public void generateOutput(TagNode node) throws SAXException {
 			// do nothing
 		}
 
+		@Override
+		public DiffOutputDetail getDetail() {
+			// the diffs only need the modification types
+			return DiffOutputDetail.MODIFICATION_TYPES;
+		}
+
 	}
 
 }
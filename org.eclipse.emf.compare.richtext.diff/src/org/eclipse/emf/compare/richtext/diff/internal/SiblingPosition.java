@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.internal;
+
+import java.util.ArrayList;
+
+import org.outerj.daisy.diff.html.dom.Node;
+import org.outerj.daisy.diff.html.dom.TagNode;
+import org.outerj.daisy.diff.html.dom.TextNode;
+import org.outerj.daisy.diff.html.modification.ModificationType;
+
+/**
+ * The position of a {@link RTNode} among its siblings without insertions. It
+ * is assigned to all children whenever a parent computes its list of children
+ * without insertions, and it is only valid as long as the parent keeps that
+ * list. So the index of a node is a field access instead of a search in the
+ * list of its siblings.
+ */
+public final class SiblingPosition {
+
+	/** the list of children without insertions this position belongs to */
+	private final ArrayList<Node> siblings;
+
+	private final int index;
+
+	private final int precedingSiblings;
+
+	private SiblingPosition(ArrayList<Node> siblings, int index, int precedingSiblings) {
+		this.siblings = siblings;
+		this.index = index;
+		this.precedingSiblings = precedingSiblings;
+	}
+
+	/**
+	 * @return the index of the node in the list of its parent's children
+	 *         without insertions, or -1 if it is not contained in it
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the number of preceding siblings which are not insertions
+	 */
+	public int getPrecedingSiblings() {
+		return precedingSiblings;
+	}
+
+	/**
+	 * @return whether this position belongs to the given list of siblings
+	 */
+	boolean isIn(ArrayList<Node> siblingsWithoutInsertions) {
+		return siblings == siblingsWithoutInsertions;
+	}
+
+	/**
+	 * Returns the list of siblings without insertions of the given node. This
+	 * makes sure the parent has assigned the positions of its children.
+	 * 
+	 * @return the list of the parent's children without insertions, or null if
+	 *         the node has no {@link RTNode} parent
+	 */
+	static ArrayList<Node> getSiblings(Node node) {
+		TagNode parent = node.getParent();
+		if (!(parent instanceof RTNode)) {
+			return null;
+		}
+		return ((RTNode) parent).getListOfChildrenWithoutInsertions();
+	}
+
+	/**
+	 * Computes the list of children without insertions of the given parent
+	 * and assigns the positions of all children.
+	 * 
+	 * @param parent
+	 *            the parent
+	 * @param isInserted
+	 *            whether the parent itself is an insertion, in which case all
+	 *            of its children are insertions as well
+	 * @return the list of children without insertions
+	 */
+	static ArrayList<Node> computeChildrenWithoutInsertions(TagNode parent, boolean isInserted) {
+		ArrayList<Node> childrenNoInsertions = new ArrayList<Node>();
+		int precedingSiblings = 0;
+		for (Node child : parent) {
+			// insertions have no index, but still a number of preceding
+			// siblings, which is their insertion point
+			boolean isInsert = isInsert(child);
+			int index = -1;
+			if (!isInserted && !isInsert) {
+				index = childrenNoInsertions.size();
+				childrenNoInsertions.add(child);
+			}
+			if (child instanceof RTNode) {
+				((RTNode) child).setSiblingPosition(new SiblingPosition(childrenNoInsertions, index,
+						precedingSiblings));
+			}
+			if (!isInsert) {
+				precedingSiblings++;
+			}
+		}
+		return childrenNoInsertions;
+	}
+
+	/**
+	 * Invalidates the positions of the children of the parent of the given
+	 * node, e.g. after its modification has changed.
+	 */
+	static void invalidateSiblings(Node node) {
+		TagNode parent = node.getParent();
+		if (parent instanceof RTNode) {
+			((RTNode) parent).invalidateChildrenWithoutInsertions();
+		}
+	}
+
+	private static boolean isInsert(Node node) {
+		if (node instanceof RTTagNode) {
+			return ((RTTagNode) node).getModification().getType() == ModificationType.ADDED;
+		}
+		if (node instanceof TextNode) {
+			return ((TextNode) node).getModification().getType() == ModificationType.ADDED;
+		}
+		return false;
+	}
+
+}
@@ -10,19 +10,21 @@
  *******************************************************************************/
 package org.eclipse.emf.compare.richtext.diff.internal;
 
-import javax.xml.transform.sax.TransformerHandler;
-
 import org.outerj.daisy.diff.html.dom.Node;
 import org.outerj.daisy.diff.html.dom.TagNode;
 import org.outerj.daisy.diff.html.dom.TextNode;
 import org.outerj.daisy.diff.output.DiffOutput;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
 public class StringOutputGenerator implements DiffOutput {
 
-	private TransformerHandler handler;
+	private ContentHandler handler;
+
+	/** the characters of the current text node, reused for all text nodes */
+	private char[] chars = new char[64];
 
-	public StringOutputGenerator(TransformerHandler handler) {
+	public StringOutputGenerator(ContentHandler handler) {
 		this.handler = handler;
 	}
 
@@ -35,9 +37,12 @@ public class StringOutputGenerator implements DiffOutput {
 			if (child instanceof TagNode) {
 				generateOutput(((TagNode)child));
 			} else if (child instanceof TextNode) {
-				TextNode textChild = (TextNode)child;
-				char[] chars = textChild.getText().toCharArray();
-				handler.characters(chars, 0, chars.length);
+				String text = ((TextNode)child).getText();
+				if (text.length() > chars.length) {
+					chars = new char[Math.max(text.length(), 2 * chars.length)];
+				}
+				text.getChars(0, text.length(), chars, 0);
+				handler.characters(chars, 0, text.length());
 			}
 		}
 		if (!node.getQName().equalsIgnoreCase("body")) {
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.emf.compare.richtext.diff.internal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.outerj.daisy.diff.html.dom.Node;
+import org.outerj.daisy.diff.html.dom.TagNode;
+import org.outerj.daisy.diff.html.modification.ModificationType;
+
+/**
+ * Summarizes the changed cells of a table, so that the table is traversed
+ * only once however often its columns are checked.
+ * <p>
+ * The rows are the <code>tr</code> tags and the cells the <code>td</code>
+ * tags of the table, but not the ones inside of its cells. A cell is changed
+ * if its modification type is not {@link ModificationType#NONE}. A column is
+ * changed if all of its cells are changed.
+ * <p>
+ * The rows and cells are numbered in the order in which they are visited,
+ * which is from the last child to the first one. So the column indices count
+ * from the end of each row.
+ */
+public class TableChanges {
+
+	private int rowCount;
+
+	private int columnCount;
+
+	/** the rows with a changed cell, by column index */
+	private final List<BitSet> changedCells = new ArrayList<BitSet>();
+
+	private final BitSet changedColumns = new BitSet();
+
+	/**
+	 * @param table
+	 *            the table to summarize
+	 */
+	public TableChanges(TagNode table) {
+		analyze(table);
+		for (int column = 0; column < changedCells.size(); column++) {
+			int cardinality = changedCells.get(column).cardinality();
+			if (cardinality > 0 && cardinality == rowCount) {
+				changedColumns.set(column);
+			}
+		}
+	}
+
+	private void analyze(TagNode table) {
+		int column = 0;
+		List<TagNode> stack = new ArrayList<TagNode>();
+		stack.add(table);
+		while (!stack.isEmpty()) {
+			TagNode node = stack.remove(stack.size() - 1);
+			String qName = node.getQName();
+			if (qName.equals("tr")) {
+				rowCount++;
+				column = 0;
+			} else if (qName.equals("td")) {
+				if (node instanceof RTTagNode
+						&& ((RTTagNode) node).getModification().getType() != ModificationType.NONE) {
+					getChangedCells(column).set(rowCount);
+				}
+				column++;
+				columnCount = Math.max(columnCount, column);
+				// cells of nested tables belong to these tables
+				continue;
+			}
+			for (Node child : node) {
+				if (child instanceof TagNode) {
+					stack.add((TagNode) child);
+				}
+			}
+		}
+	}
+
+	private BitSet getChangedCells(int column) {
+		while (changedCells.size() <= column) {
+			changedCells.add(new BitSet());
+		}
+		return changedCells.get(column);
+	}
+
+	/**
+	 * @return the number of rows of the table
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return the number of cells of the longest row
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * @param column
+	 *            the index of the column
+	 * @return true if all cells of the given column have been changed
+	 */
+	public boolean isColumnChanged(int column) {
+		return changedColumns.get(column);
+	}
+
+	/**
+	 * @return true if at least one column has been changed
+	 */
+	public boolean hasChangedColumn() {
+		return !changedColumns.isEmpty();
+	}
+
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.outerj.daisy.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * A SAX filter applying the rules of <code>cleanup.xsl</code> in a single
+ * streaming pass, without building the whole document in memory:
+ * <ul>
+ * <li>the output consists of an <code>html</code> element with an empty
+ * <code>head</code> and a <code>body</code> containing the content of the
+ * <code>body</code> elements of the input, everything else is dropped</li>
+ * <li>elements and attributes lose their namespace and keep their local
+ * name</li>
+ * <li><code>script</code> elements are removed with their content</li>
+ * <li><code>noscript</code> elements are replaced by their content</li>
+ * <li>attributes with a name starting with <code>on</code> or a value starting
+ * with <code>javascript:</code> are removed</li>
+ * </ul>
+ * Like in XSLT, the attributes of a <code>noscript</code> element are added to
+ * the enclosing output element if it has no content yet, and dropped
+ * otherwise. Comments, processing instructions and prefix mappings are not
+ * passed on.
+ */
+public class CleanupFilter implements ContentHandler {
+
+    private static final String CDATA = "CDATA";
+
+    private static final Attributes NO_ATTRIBUTES = new AttributesImpl();
+
+    private final ContentHandler consumer;
+
+    /**
+     * The output element names of all open input elements inside a body,
+     * innermost last. Unwrapped elements are represented by null.
+     */
+    private final List<String> openElements = new ArrayList<String>();
+
+    /**
+     * The depth of the input element, 0 before the root element.
+     */
+    private int depth = 0;
+
+    /**
+     * The depth of the body element we are in, or -1.
+     */
+    private int bodyDepth = -1;
+
+    /**
+     * The depth of the element whose subtree is skipped, or -1.
+     */
+    private int skipDepth = -1;
+
+    private boolean htmlRoot = false;
+
+    /**
+     * The output element whose start has not been passed on yet, because a
+     * <code>noscript</code> child may still add attributes to it.
+     */
+    private String pendingName;
+
+    private AttributesImpl pendingAttributes;
+
+    public CleanupFilter(ContentHandler consumer) {
+        this.consumer = consumer;
+    }
+
+    public void setDocumentLocator(Locator locator) {
+        // the locator refers to the input, not to the filtered output
+    }
+
+    public void startDocument() throws SAXException {
+        consumer.startDocument();
+        consumer.startElement("", "html", "html", NO_ATTRIBUTES);
+        consumer.startElement("", "head", "head", NO_ATTRIBUTES);
+        consumer.endElement("", "head", "head");
+        setPending("body");
+    }
+
+    public void endDocument() throws SAXException {
+        flushPending();
+        consumer.endElement("", "body", "body");
+        consumer.endElement("", "html", "html");
+        consumer.endDocument();
+    }
+
+    public void startElement(String uri, String localName, String qName,
+            Attributes atts) throws SAXException {
+        depth++;
+        if (skipDepth != -1)
+            return;
+
+        String name = getLocalName(localName, qName);
+        if (bodyDepth == -1) {
+            if (depth == 1 && "html".equals(name)) {
+                htmlRoot = true;
+            } else if (depth == 2 && htmlRoot && "body".equals(name)) {
+                bodyDepth = depth;
+            } else {
+                skipDepth = depth;
+            }
+        } else if ("script".equals(name)) {
+            skipDepth = depth;
+        } else if ("noscript".equals(name)) {
+            openElements.add(null);
+            if (pendingName != null) {
+                addAttributes(pendingAttributes, atts);
+            }
+        } else {
+            flushPending();
+            openElements.add(name);
+            setPending(name);
+            addAttributes(pendingAttributes, atts);
+        }
+    }
+
+    public void endElement(String uri, String localName, String qName)
+            throws SAXException {
+        int endedDepth = depth--;
+        if (skipDepth != -1) {
+            if (skipDepth == endedDepth)
+                skipDepth = -1;
+            return;
+        }
+        if (bodyDepth == -1) {
+            return;
+        }
+        if (bodyDepth == endedDepth) {
+            bodyDepth = -1;
+            return;
+        }
+
+        String name = openElements.remove(openElements.size() - 1);
+        if (name != null) {
+            flushPending();
+            consumer.endElement("", name, name);
+        }
+    }
+
+    public void characters(char[] ch, int start, int length)
+            throws SAXException {
+        if (skipDepth != -1 || bodyDepth == -1 || length == 0)
+            return;
+        flushPending();
+        consumer.characters(ch, start, length);
+    }
+
+    public void ignorableWhitespace(char[] ch, int start, int length)
+            throws SAXException {
+        // the stylesheet copies whitespace like any other text
+        characters(ch, start, length);
+    }
+
+    public void processingInstruction(String target, String data)
+            throws SAXException {
+        // dropped on purpose
+    }
+
+    public void skippedEntity(String name) throws SAXException {
+        // dropped on purpose
+    }
+
+    public void startPrefixMapping(String prefix, String uri)
+            throws SAXException {
+        // dropped on purpose
+    }
+
+    public void endPrefixMapping(String prefix) throws SAXException {
+        // dropped on purpose
+    }
+
+    private void setPending(String name) {
+        pendingName = name;
+        pendingAttributes = new AttributesImpl();
+    }
+
+    private void flushPending() throws SAXException {
+        if (pendingName != null) {
+            String name = pendingName;
+            pendingName = null;
+            consumer.startElement("", name, name, pendingAttributes);
+            pendingAttributes = null;
+        }
+    }
+
+    /**
+     * Adds all attributes which are not removed by the stylesheet, an
+     * attribute replaces an already added one with the same local name.
+     * Namespace declarations are not attributes for the stylesheet.
+     */
+    private static void addAttributes(AttributesImpl target, Attributes atts) {
+        for (int i = 0; i < atts.getLength(); i++) {
+            String qName = atts.getQName(i);
+            if (qName.equals("xmlns") || qName.startsWith("xmlns:"))
+                continue;
+            String name = getLocalName(atts.getLocalName(i), qName);
+            String value = atts.getValue(i);
+            if (name.startsWith("on") || value.startsWith("javascript:"))
+                continue;
+
+            int index = target.getIndex("", name);
+            if (index == -1) {
+                target.addAttribute("", name, name, CDATA, value);
+            } else {
+                target.setValue(index, value);
+            }
+        }
+    }
+
+    private static String getLocalName(String localName, String qName) {
+        if (localName != null && localName.length() > 0)
+            return localName;
+        int colon = qName.indexOf(':');
+        return colon == -1 ? qName : qName.substring(colon + 1);
+    }
+
+}
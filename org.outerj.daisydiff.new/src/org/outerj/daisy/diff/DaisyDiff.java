@@ -48,7 +48,9 @@ public class DaisyDiff {
         TextNodeComparator leftComparator = new TextNodeComparator(oldHandler,
                 locale);
 
-        DomTreeBuilder newHandler = new DomTreeBuilder();
+        // share the token table, so texts are compared by their ids
+        DomTreeBuilder newHandler = new DomTreeBuilder(
+                oldHandler.getTokenTable());
         XMLReader xr2 = XMLReaderFactory.createXMLReader();
         xr2.setContentHandler(newHandler);
         xr2.parse(newSource);
@@ -25,20 +25,60 @@ import org.xml.sax.SAXException;
 
 public class HtmlCleaner {
 
+    public static final String CLEANUP_XSL = "org/outerj/daisy/diff/cleanup.xsl";
+
+    /**
+     * The ways the parsed HTML can be cleaned up.
+     */
+    public enum Mode {
+        /** Applies <code>cleanup.xsl</code> with an XSLT processor. */
+        XSLT,
+        /**
+         * Applies the same rules in a single streaming pass, see
+         * {@link CleanupFilter}.
+         */
+        STREAMING
+    }
+
     private NekoHtmlParser parser;
 
     private XslFilter filter;
 
+    private Mode mode;
+
     public HtmlCleaner() {
+        this(Mode.XSLT);
+    }
+
+    public HtmlCleaner(Mode mode) {
         this.parser = new NekoHtmlParser();
         this.filter = new XslFilter();
+        this.mode = mode;
     }
 
     public void cleanAndParse(InputSource source, ContentHandler consumer)
             throws IOException, SAXException {
-        ContentHandler cleanupFilter = filter.xsl(consumer,
-                "org/outerj/daisy/diff/cleanup.xsl");
+        ContentHandler cleanupFilter;
+        if (mode == Mode.STREAMING) {
+            cleanupFilter = new CleanupFilter(consumer);
+        } else {
+            cleanupFilter = filter.xsl(consumer, CLEANUP_XSL);
+        }
         parser.parse(source, cleanupFilter);
     }
 
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Compiles the cleanup stylesheet ahead of the first call of
+     * {@link #cleanAndParse(InputSource, ContentHandler)}.
+     * 
+     * @throws IOException
+     */
+    public static void warmUp() throws IOException {
+        XslFilter.warmUp(CLEANUP_XSL);
+    }
+
 }
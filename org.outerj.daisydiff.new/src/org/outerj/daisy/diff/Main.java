@@ -135,7 +135,8 @@ public class Main {
                 TextNodeComparator leftComparator = new TextNodeComparator(
                         oldHandler, locale);
 
-                DomTreeBuilder newHandler = new DomTreeBuilder();
+                DomTreeBuilder newHandler = new DomTreeBuilder(
+                        oldHandler.getTokenTable());
                 cleaner.cleanAndParse(newSource, newHandler);
                 System.out.print(".");
                 TextNodeComparator rightComparator = new TextNodeComparator(
@@ -16,6 +16,10 @@
 package org.outerj.daisy.diff;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
@@ -28,25 +32,36 @@ import javax.xml.transform.stream.StreamSource;
 
 import org.xml.sax.ContentHandler;
 
+/**
+ * Applies stylesheets to SAX event streams. Compiled stylesheets are cached
+ * for the whole process, keyed by their class path location, so every
+ * stylesheet is compiled only once. All methods are thread-safe.
+ */
 public class XslFilter {
 
+    private static final ConcurrentMap<String, Templates> templates = new ConcurrentHashMap<String, Templates>();
+
+    private static final AtomicInteger compilationCount = new AtomicInteger();
+
+    /**
+     * TransformerFactory is not thread-safe, so every thread uses its own
+     * one. The compiled templates are thread-safe and shared.
+     */
+    private static final ThreadLocal<SAXTransformerFactory> factory = new ThreadLocal<SAXTransformerFactory>() {
+        @Override
+        protected SAXTransformerFactory initialValue() {
+            return (SAXTransformerFactory) TransformerFactory.newInstance();
+        }
+    };
+
     public ContentHandler xsl(ContentHandler consumer, String xslPath)
             throws IOException {
 
         try {
-            // Create transformer factory
-            TransformerFactory factory = TransformerFactory.newInstance();
+            Templates template = getTemplates(xslPath);
 
-            // Use the factory to create a template containing the xsl file
-            Templates template = factory.newTemplates(new StreamSource(
-                    getClass().getClassLoader().getResourceAsStream(xslPath)));
-
-            // Use the template to create a transformer
-            TransformerFactory transFact = TransformerFactory.newInstance();
-            SAXTransformerFactory saxTransFact = (SAXTransformerFactory) transFact;
             // create a ContentHandler
-            TransformerHandler transHand = saxTransFact
-                    .newTransformerHandler(template);
+            TransformerHandler transHand = factory.get().newTransformerHandler(template);
 
             transHand.setResult(new SAXResult(consumer));
 
@@ -63,4 +78,59 @@ public class XslFilter {
 
     }
 
+    /**
+     * Compiles the given stylesheets if they are not cached yet, so that the
+     * first diffs do not have to pay for it.
+     * 
+     * @param xslPaths the class path locations of the stylesheets
+     * @throws IOException
+     */
+    public static void warmUp(String... xslPaths) throws IOException {
+        for (String xslPath : xslPaths) {
+            try {
+                getTemplates(xslPath);
+            } catch (TransformerConfigurationException e) {
+                throw new IllegalStateException("Can't compile " + xslPath, e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of stylesheet compilations done by this process
+     */
+    public static int getCompilationCount() {
+        return compilationCount.get();
+    }
+
+    private static Templates getTemplates(String xslPath)
+            throws TransformerConfigurationException, IOException {
+        Templates template = templates.get(xslPath);
+        if (template == null) {
+            synchronized (XslFilter.class) {
+                // another thread may have compiled it in the meantime
+                template = templates.get(xslPath);
+                if (template == null) {
+                    template = compile(xslPath);
+                    templates.put(xslPath, template);
+                }
+            }
+        }
+        return template;
+    }
+
+    private static Templates compile(String xslPath)
+            throws TransformerConfigurationException, IOException {
+        InputStream xsl = XslFilter.class.getClassLoader().getResourceAsStream(
+                xslPath);
+        try {
+            Templates template = factory.get().newTemplates(
+                    new StreamSource(xsl));
+            compilationCount.incrementAndGet();
+            return template;
+        } finally {
+            if (xsl != null)
+                xsl.close();
+        }
+    }
+
 }
@@ -16,6 +16,8 @@
 package org.outerj.daisy.diff.helper;
 
 import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.cyberneko.html.parsers.SAXParser;
 import org.xml.sax.Attributes;
@@ -28,9 +30,37 @@ import org.xml.sax.helpers.AttributesImpl;
 /**
  * Parses HTML files using the Neko HTML parser. Puts all elements and attribute
  * names to lowercase, removes all namespaces, produces well-formed XML.
+ * <p>
+ * Configured parsers are kept in a small pool shared by all instances, so
+ * parsing many small documents does not pay for creating and configuring a
+ * parser each time. A parser is used by one thread at a time and reset before
+ * it is returned to the pool.
  */
 public class NekoHtmlParser {
 
+    /**
+     * The maximum number of idle parsers kept for reuse.
+     */
+    public static final int MAX_POOLED_PARSERS = 16;
+
+    private static final BlockingQueue<SAXParser> pool = new ArrayBlockingQueue<SAXParser>(
+            MAX_POOLED_PARSERS);
+
+    private final boolean pooled;
+
+    public NekoHtmlParser() {
+        this(true);
+    }
+
+    /**
+     * @param pooled
+     *            whether parsers are taken from and returned to the shared
+     *            pool, or created for each document
+     */
+    public NekoHtmlParser(boolean pooled) {
+        this.pooled = pooled;
+    }
+
     public SaxBuffer parse(InputSource is) throws IOException, SAXException {
         SaxBuffer buffer = new SaxBuffer();
         parse(is, buffer);
@@ -43,6 +73,23 @@ public class NekoHtmlParser {
         if (is == null)
             throw new NullPointerException("is argument is required.");
 
+        SAXParser parser = pooled ? pool.poll() : null;
+        if (parser == null)
+            parser = createParser();
+
+        parser.setContentHandler(new RemoveNamespacesHandler(
+                new MergeCharacterEventsHandler(consumer)));
+        boolean reusable = false;
+        try {
+            parser.parse(is);
+            reusable = pooled;
+        } finally {
+            if (reusable)
+                release(parser);
+        }
+    }
+
+    private static SAXParser createParser() throws SAXException {
         SAXParser parser = new SAXParser();
         parser.setFeature("http://xml.org/sax/features/namespaces", true);
         parser
@@ -62,10 +109,22 @@ public class NekoHtmlParser {
                 "lower");
         parser.setProperty("http://cyberneko.org/html/properties/names/attrs",
                 "lower");
+        return parser;
+    }
 
-        parser.setContentHandler(new RemoveNamespacesHandler(
-                new MergeCharacterEventsHandler(consumer)));
-        parser.parse(is);
+    /**
+     * Resets the given parser and returns it to the pool, unless the pool is
+     * full. Parsers which failed are not reused.
+     */
+    private static void release(SAXParser parser) {
+        try {
+            // don't keep the consumer of the last document alive
+            parser.setContentHandler(null);
+            parser.reset();
+        } catch (RuntimeException e) {
+            return;
+        }
+        pool.offer(parser);
     }
 
     /**
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.outerj.daisy.diff.html;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.compare.rangedifferencer.IRangeComparator;
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.outerj.daisy.diff.html.ancestor.TextOnlyComparator;
+import org.outerj.daisy.diff.html.dom.SeparatingNode;
+import org.outerj.daisy.diff.rangedifferencer.TrimmedRangeDifferencer;
+
+/**
+ * Computes the differences between the text nodes of two
+ * {@link TextNodeComparator}s in two steps. First the blocks of both
+ * documents are aligned, then the words are only compared inside the blocks
+ * which differ.
+ * <p>
+ * A block is the run of text nodes up to and including the next
+ * {@link SeparatingNode}. The tree builders add these separators at the start
+ * and the end of every block level tag, so a block holds the text of a
+ * paragraph, a list item or a table cell, without the text of nested blocks.
+ * Blocks are aligned by a hash of their texts, or of the interned ids of
+ * their texts if both documents share a token table, and two blocks are only
+ * equal if all of their text nodes are.
+ * <p>
+ * The differences have the same form as the ones of the flat comparison, but
+ * words are never matched across a changed block boundary, so the result can
+ * differ from the flat comparison when text has been moved between blocks.
+ */
+public final class BlockDifferencer {
+
+	private BlockDifferencer() {
+	}
+
+	/**
+	 * Finds the differences between the text nodes of both comparators.
+	 *
+	 * @param left
+	 *            the comparator of the old version
+	 * @param right
+	 *            the comparator of the new version
+	 * @return the differences in ascending order
+	 */
+	public static RangeDifference[] findDifferences(TextNodeComparator left, TextNodeComparator right) {
+		// the ids only hash equal texts alike if they are from the same table
+		boolean useTokenIds = left.getTokenIds() != null && right.getTokenIds() != null
+				&& left.getTokenTable() == right.getTokenTable();
+		BlockComparator leftBlocks = new BlockComparator(left, useTokenIds);
+		BlockComparator rightBlocks = new BlockComparator(right, useTokenIds);
+
+		List<RangeDifference> differences = new ArrayList<RangeDifference>();
+		for (RangeDifference block : TrimmedRangeDifferencer.findDifferences(leftBlocks, rightBlocks)) {
+			RangeDifference[] words = TrimmedRangeDifferencer.findDifferences(left,
+					leftBlocks.getStart(block.leftStart()), leftBlocks.getStart(block.leftEnd()), right,
+					rightBlocks.getStart(block.rightStart()), rightBlocks.getStart(block.rightEnd()));
+			for (RangeDifference word : words) {
+				differences.add(word);
+			}
+		}
+		return differences.toArray(new RangeDifference[differences.size()]);
+	}
+
+	/**
+	 * Compares the blocks of a {@link TextNodeComparator}.
+	 */
+	private static class BlockComparator implements IRangeComparator {
+
+		private final TextNodeComparator comparator;
+
+		/** the index of the first text node of each block, and the end */
+		private final int[] starts;
+
+		private final int[] hashes;
+
+		public BlockComparator(TextNodeComparator comparator, boolean useTokenIds) {
+			this.comparator = comparator;
+
+			int count = comparator.getRangeCount();
+			int[] tokenIds = useTokenIds ? comparator.getTokenIds() : null;
+			List<Integer> blockStarts = new ArrayList<Integer>();
+			List<Integer> blockHashes = new ArrayList<Integer>();
+			int hash = 0;
+			boolean blockStart = true;
+			for (int i = 0; i < count; i++) {
+				if (blockStart) {
+					blockStarts.add(Integer.valueOf(i));
+					hash = 0;
+				}
+				if (tokenIds != null) {
+					hash = 31 * hash + tokenIds[i];
+				} else {
+					hash = 31 * hash + TextOnlyComparator.getTokenKey(comparator.getTextNode(i)).hashCode();
+				}
+				blockStart = comparator.getTextNode(i) instanceof SeparatingNode || i == count - 1;
+				if (blockStart) {
+					blockHashes.add(Integer.valueOf(hash));
+				}
+			}
+			blockStarts.add(Integer.valueOf(count));
+
+			starts = new int[blockStarts.size()];
+			for (int i = 0; i < starts.length; i++) {
+				starts[i] = blockStarts.get(i).intValue();
+			}
+			hashes = new int[blockHashes.size()];
+			for (int i = 0; i < hashes.length; i++) {
+				hashes[i] = blockHashes.get(i).intValue();
+			}
+		}
+
+		/**
+		 * @return the index of the first text node of the given block, or the
+		 *         number of text nodes for the number of blocks
+		 */
+		public int getStart(int block) {
+			return starts[block];
+		}
+
+		public int getRangeCount() {
+			return hashes.length;
+		}
+
+		public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+			BlockComparator blocks = (BlockComparator) other;
+			if (hashes[thisIndex] != blocks.hashes[otherIndex]) {
+				return false;
+			}
+			int start = starts[thisIndex];
+			int length = starts[thisIndex + 1] - start;
+			int otherStart = blocks.starts[otherIndex];
+			if (length != blocks.starts[otherIndex + 1] - otherStart) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (!comparator.rangesEqual(start + i, blocks.comparator, otherStart + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public boolean skipRangeComparison(int length, int maxLength, IRangeComparator other) {
+			return false;
+		}
+	}
+
+}
@@ -19,11 +19,13 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.eclipse.compare.rangedifferencer.RangeDifference;
-import org.eclipse.compare.rangedifferencer.RangeDifferencer;
 import org.outerj.daisy.diff.helper.RangeDifferenceHelper;
 import org.outerj.daisy.diff.html.modification.ModificationType;
+import org.outerj.daisy.diff.output.DetailedDiffOutput;
 import org.outerj.daisy.diff.output.DiffOutput;
+import org.outerj.daisy.diff.output.DiffOutputDetail;
 import org.outerj.daisy.diff.output.Differ;
+import org.outerj.daisy.diff.rangedifferencer.TrimmedRangeDifferencer;
 import org.xml.sax.SAXException;
 
 /**
@@ -33,16 +35,48 @@ import org.xml.sax.SAXException;
  */
 public class HTMLDiffer implements Differ {
 
+	/**
+	 * The ways the text nodes of two versions can be compared.
+	 */
+	public enum Mode {
+		/** a single comparison of all words */
+		FLAT,
+		/**
+		 * the blocks are aligned first, the words are only compared in the
+		 * blocks which differ, see {@link BlockDifferencer}
+		 */
+		BLOCKS
+	}
+
 	private DiffOutput output;
 
+	private Mode mode;
+
 	public HTMLDiffer(DiffOutput dm) {
+		this(dm, Mode.FLAT);
+	}
+
+	/**
+	 * @param dm
+	 *            the output of the differences
+	 * @param mode
+	 *            the way a two-way diff compares the text nodes, a three-way
+	 *            diff always compares all words
+	 */
+	public HTMLDiffer(DiffOutput dm, Mode mode) {
 		output = dm;
+		this.mode = mode;
+	}
+
+	public Mode getMode() {
+		return mode;
 	}
 
 	public void diff(TextNodeComparator ancestorComparator, TextNodeComparator leftComparator,
 			TextNodeComparator rightComparator) throws SAXException {
-		org.eclipse.compare.rangedifferencer.RangeDifference[] differences = RangeDifferencer.findDifferences(
-				ancestorComparator, leftComparator, rightComparator);
+		ancestorComparator.setDetail(getDetail(output));
+		RangeDifference[] differences = TrimmedRangeDifferencer.findDifferences(ancestorComparator, leftComparator,
+				rightComparator);
 
 		List<RangeDifference> pdifferences = preProcess(differences);
 
@@ -105,7 +139,13 @@ public class HTMLDiffer implements Differ {
 	 * {@inheritDoc}
 	 */
 	public void diff(TextNodeComparator leftComparator, TextNodeComparator rightComparator) throws SAXException {
-		RangeDifference[] differences = RangeDifferencer.findDifferences(leftComparator, rightComparator);
+		rightComparator.setDetail(getDetail(output));
+		RangeDifference[] differences;
+		if (mode == Mode.BLOCKS) {
+			differences = BlockDifferencer.findDifferences(leftComparator, rightComparator);
+		} else {
+			differences = TrimmedRangeDifferencer.findDifferences(leftComparator, rightComparator);
+		}
 
 		List<RangeDifference> pdifferences = preProcess(differences);
 
@@ -134,6 +174,16 @@ public class HTMLDiffer implements Differ {
 		output.generateOutput(rightComparator.getBodyNode());
 	}
 
+	/**
+	 * @return the level of detail the given output uses
+	 */
+	private static DiffOutputDetail getDetail(DiffOutput output) {
+		if (output instanceof DetailedDiffOutput) {
+			return ((DetailedDiffOutput) output).getDetail();
+		}
+		return DiffOutputDetail.CHANGE_DESCRIPTIONS;
+	}
+
 	private List<RangeDifference> preProcess(RangeDifference[] differences) {
 
 		List<RangeDifference> newRanges = new LinkedList<RangeDifference>();
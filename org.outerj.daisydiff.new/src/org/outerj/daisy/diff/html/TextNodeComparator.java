@@ -16,9 +16,12 @@
 package org.outerj.daisy.diff.html;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.eclipse.compare.rangedifferencer.IRangeComparator;
 import org.outerj.daisy.diff.html.ancestor.AncestorComparator;
@@ -26,10 +29,13 @@ import org.outerj.daisy.diff.html.ancestor.AncestorComparatorResult;
 import org.outerj.daisy.diff.html.dom.BodyNode;
 import org.outerj.daisy.diff.html.dom.DomTree;
 import org.outerj.daisy.diff.html.dom.Node;
+import org.outerj.daisy.diff.html.dom.TagNode;
 import org.outerj.daisy.diff.html.dom.TextNode;
+import org.outerj.daisy.diff.html.dom.TokenTable;
 import org.outerj.daisy.diff.html.dom.helper.LastCommonParentResult;
 import org.outerj.daisy.diff.html.modification.Modification;
 import org.outerj.daisy.diff.html.modification.ModificationType;
+import org.outerj.daisy.diff.output.DiffOutputDetail;
 
 /**
  * A comparator that generates a DOM tree of sorts from handling SAX events.
@@ -46,11 +52,71 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
 
     private Locale locale;
 
+    /**
+     * The interned ids of the text nodes, or null if they have not all been
+     * interned in the same table.
+     */
+    private int[] tokenIds;
+
+    private TokenTable tokenTable;
+
+    private DiffOutputDetail detail = DiffOutputDetail.CHANGE_DESCRIPTIONS;
+
     public TextNodeComparator(DomTree tree, Locale locale) {
         super();
         this.locale = locale;
         textNodes = tree.getTextNodes();
         bodyNode = tree.getBodyNode();
+        initTokenIds();
+    }
+
+    private void initTokenIds() {
+        int[] ids = new int[textNodes.size()];
+        TokenTable table = null;
+        for (int i = 0; i < ids.length; i++) {
+            TextNode node = textNodes.get(i);
+            if (node.getTokenId() == -1
+                    || (table != null && table != node.getTokenTable()))
+                return;
+            table = node.getTokenTable();
+            ids[i] = node.getTokenId();
+        }
+        tokenIds = ids;
+        tokenTable = table;
+    }
+
+    /**
+     * @return the interned ids of the text nodes, or null if the text nodes
+     *         have not all been interned in the same {@link TokenTable}
+     */
+    public int[] getTokenIds() {
+        return tokenIds;
+    }
+
+    /**
+     * @return the table of the ids returned by {@link #getTokenIds()}, or null
+     *         if there are no ids
+     */
+    public TokenTable getTokenTable() {
+        return tokenTable;
+    }
+
+    public DiffOutputDetail getDetail() {
+        return detail;
+    }
+
+    /**
+     * Sets the level of detail of the modifications marked by
+     * {@link #handlePossibleChangedPart(int, int, int, int, TextNodeComparator)}.
+     * Without change descriptions, consecutive changed text nodes get the
+     * same id regardless of how their ancestors have changed.
+     * @param detail - the level of detail the output uses
+     */
+    public void setDetail(DiffOutputDetail detail) {
+        if (this.detail != detail) {
+            clearAncestorCaches();
+        }
+        this.detail = detail;
     }
 
     public BodyNode getBodyNode() {
@@ -120,6 +186,11 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
             return false;
         }
 
+        // texts interned in the same table are equal iff their ids are
+        if (tokenIds != null && comp.tokenIds != null
+                && tokenTable == comp.tokenTable)
+            return tokenIds[i1] == comp.tokenIds[i2];
+
         return getTextNode(i1).isSameText(comp.getTextNode(i2));
     }
 
@@ -145,12 +216,8 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
 
         String changes = null;
         while (i < rightend) {
-            AncestorComparator acthis = new AncestorComparator(getTextNode(i)
-                    .getParentTree());
-            AncestorComparator acother = new AncestorComparator(leftComparator
-                    .getTextNode(j).getParentTree());
-
-            AncestorComparatorResult result = acthis.getResult(acother, locale);
+            AncestorComparatorResult result = getAncestorResult(getTextNode(i)
+                    .getParent(), leftComparator.getTextNode(j).getParent());
 
             if (result.isChanged()) {
 
@@ -203,6 +270,64 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
 
     }
 
+    /**
+     * The results of comparing the ancestors of two parents, by the parent of
+     * this tree and the parent of the other tree. Consecutive text nodes
+     * mostly share their parents, so they share the result. Only valid as
+     * long as the trees are not changed, see {@link #clearAncestorCaches()}.
+     */
+    private Map<TagNode, Map<TagNode, AncestorComparatorResult>> ancestorResults = new IdentityHashMap<TagNode, Map<TagNode, AncestorComparatorResult>>();
+
+    /**
+     * The ancestors of tags, including the tag itself, starting with the
+     * root. The same as {@link Node#getParentTree()} of a child of the tag.
+     */
+    private Map<TagNode, List<TagNode>> ancestors = new IdentityHashMap<TagNode, List<TagNode>>();
+
+    private AncestorComparatorResult getAncestorResult(TagNode parent,
+            TagNode otherParent) {
+        Map<TagNode, AncestorComparatorResult> results = ancestorResults
+                .get(parent);
+        if (results == null) {
+            results = new IdentityHashMap<TagNode, AncestorComparatorResult>();
+            ancestorResults.put(parent, results);
+        }
+        AncestorComparatorResult result = results.get(otherParent);
+        if (result == null) {
+            AncestorComparator acthis = new AncestorComparator(
+                    getAncestors(parent));
+            AncestorComparator acother = new AncestorComparator(
+                    getAncestors(otherParent));
+            result = acthis.getResult(acother, locale,
+                    detail == DiffOutputDetail.CHANGE_DESCRIPTIONS);
+            results.put(otherParent, result);
+        }
+        return result;
+    }
+
+    private List<TagNode> getAncestors(TagNode tag) {
+        if (tag == null)
+            return Collections.emptyList();
+        List<TagNode> tagAncestors = ancestors.get(tag);
+        if (tagAncestors == null) {
+            List<TagNode> parentAncestors = getAncestors(tag.getParent());
+            tagAncestors = new ArrayList<TagNode>(parentAncestors.size() + 1);
+            tagAncestors.addAll(parentAncestors);
+            tagAncestors.add(tag);
+            ancestors.put(tag, tagAncestors);
+        }
+        return tagAncestors;
+    }
+
+    /**
+     * Forgets the compared ancestors, because nodes are moved between the
+     * trees.
+     */
+    private void clearAncestorCaches() {
+        ancestorResults.clear();
+        ancestors.clear();
+    }
+
     // used to remove the whitespace between a red and green block
     private boolean whiteAfterLastChangedPart = false;
 
@@ -223,6 +348,8 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
         if (end <= start)
             return;
 
+        clearAncestorCaches();
+
         if (before > 0 && getTextNode(before - 1).isWhiteAfter()) {
             whiteAfterLastChangedPart = true;
         } else {
@@ -251,8 +378,10 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
         }
         oldComp.getTextNode(start).getModification().setFirstOfID(true);
 
-        List<Node> deletedNodes = oldComp.getBodyNode().getMinimalDeletedSet(
-                deletedID);
+        List<Node> deletedNodes = getMinimalDeletedSet(oldComp, start, end);
+        // the deleted nodes which have not been inserted yet
+        int first = 0;
+        int last = deletedNodes.size() - 1;
 
         // Set prevLeaf to the leaf after which the old HTML needs to be
         // inserted
@@ -267,11 +396,11 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
             nextLeaf = getTextNode(before);
 
 
-        while (deletedNodes.size() > 0) {
+        while (first <= last) {
             LastCommonParentResult prevResult, nextResult;
             if (prevLeaf != null) {
                 prevResult = prevLeaf.getLastCommonParent(deletedNodes
-                        .get(0));
+                        .get(first));
             } else {
                 prevResult = new LastCommonParentResult();
                 prevResult.setLastCommonParent(getBodyNode());
@@ -279,7 +408,7 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
             }
             if (nextLeaf != null) {
                 nextResult = nextLeaf.getLastCommonParent(deletedNodes
-                        .get(deletedNodes.size() - 1));
+                        .get(last));
             } else {
                 nextResult = new LastCommonParentResult();
                 nextResult.setLastCommonParent(getBodyNode());
@@ -290,8 +419,8 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
             if (prevResult.getLastCommonParentDepth() == nextResult
                     .getLastCommonParentDepth()) {
                 // We need some metric to choose which way to add...
-                if (deletedNodes.get(0).getParent() == deletedNodes.get(
-                        deletedNodes.size() - 1).getParent()
+                if (deletedNodes.get(first).getParent() == deletedNodes.get(
+                        last).getParent()
                         && prevResult.getLastCommonParent() == nextResult
                         .getLastCommonParent()) {
                     // The difference is not in the parent
@@ -302,11 +431,11 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
                     // The difference is in the parent, so compare them
                     // now THIS is tricky
                     double distancePrev = deletedNodes
-                    .get(0)
+                    .get(first)
                     .getParent()
                     .getMatchRatio(prevResult.getLastCommonParent());
                     double distanceNext = deletedNodes
-                    .get(deletedNodes.size() - 1)
+                    .get(last)
                     .getParent()
                     .getMatchRatio(nextResult.getLastCommonParent());
 
@@ -332,7 +461,7 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
                             prevResult.getLastCommonParent(), prevLeaf,
                             true);
                 }
-                prevLeaf = deletedNodes.remove(0).copyTree();
+                prevLeaf = deletedNodes.get(first++).copyTree();
                 prevLeaf.setParent(prevResult.getLastCommonParent());
                 prevResult.getLastCommonParent().addChild(
                         prevResult.getIndexInLastCommonParent() + 1,
@@ -353,8 +482,7 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
                                 .getIndexInLastCommonParent() + 1);
                     }
                 }
-                nextLeaf = deletedNodes.remove(deletedNodes.size() - 1)
-                .copyTree();
+                nextLeaf = deletedNodes.get(last--).copyTree();
                 nextLeaf.setParent(nextResult.getLastCommonParent());
                 nextResult.getLastCommonParent().addChild(
                         nextResult.getIndexInLastCommonParent(), nextLeaf);
@@ -366,6 +494,56 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
         deletedID++;
     }
     
+    /**
+     * Computes the same nodes as {@link BodyNode#getMinimalDeletedSet(long)}
+     * for the id of the given range of deleted text nodes, without walking the
+     * whole old tree. A tag is deleted if all of its children are, which is
+     * found out bottom-up by counting the deleted children of the ancestors
+     * of the deleted text nodes. The body is never deleted.
+     * @param oldComp - the comparator containing the deleted text nodes
+     * @param start - the first deleted text node
+     * @param end - the end of the deleted text nodes, exclusive
+     * @return the topmost deleted nodes in document order
+     */
+    private static List<Node> getMinimalDeletedSet(TextNodeComparator oldComp,
+            int start, int end) {
+        Map<TagNode, Integer> deletedChildren = new IdentityHashMap<TagNode, Integer>();
+        for (int i = start; i < end; i++) {
+            TagNode parent = oldComp.getTextNode(i).getParent();
+            while (parent != null && !(parent instanceof BodyNode)) {
+                Integer count = deletedChildren.get(parent);
+                int newCount = count == null ? 1 : count.intValue() + 1;
+                deletedChildren.put(parent, Integer.valueOf(newCount));
+                if (newCount < parent.getNbChildren())
+                    break;
+                // all children are deleted, so the parent is, too
+                parent = parent.getParent();
+            }
+        }
+
+        List<Node> nodes = new ArrayList<Node>();
+        for (int i = start; i < end; i++) {
+            Node deleted = oldComp.getTextNode(i);
+            TagNode parent = deleted.getParent();
+            while (parent != null && isDeleted(parent, deletedChildren)) {
+                deleted = parent;
+                parent = parent.getParent();
+            }
+            // the text nodes of a deleted subtree are consecutive
+            if (nodes.isEmpty() || nodes.get(nodes.size() - 1) != deleted)
+                nodes.add(deleted);
+        }
+        return nodes;
+    }
+
+    private static boolean isDeleted(TagNode tag,
+            Map<TagNode, Integer> deletedChildren) {
+        if (tag instanceof BodyNode)
+            return false;
+        Integer count = deletedChildren.get(tag);
+        return count != null && count.intValue() == tag.getNbChildren();
+    }
+
 	/**
      * Marks the given range as deleted. In the output, the range will be
      * formatted as "removed".
@@ -380,6 +558,7 @@ public class TextNodeComparator implements IRangeComparator, Iterable<TextNode>
     }
 
     public void expandWhiteSpace() {
+        clearAncestorCaches();
         getBodyNode().expandWhiteSpace();
     }
 
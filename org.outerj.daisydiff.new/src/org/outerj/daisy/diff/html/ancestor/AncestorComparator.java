@@ -65,6 +65,20 @@ public class AncestorComparator implements IRangeComparator {
 
     public AncestorComparatorResult getResult(AncestorComparator other,
             Locale locale) {
+        return getResult(other, locale, true);
+    }
+
+    /**
+     * Compares the ancestors.
+     * @param other - the ancestors to compare with
+     * @param locale - the locale of the change descriptions
+     * @param describeChanges - whether the descriptions of the changes are
+     *          computed, otherwise the result only tells whether the
+     *          ancestors have changed
+     * @return the result of the comparison
+     */
+    public AncestorComparatorResult getResult(AncestorComparator other,
+            Locale locale, boolean describeChanges) {
 
         AncestorComparatorResult result = new AncestorComparatorResult();
 
@@ -74,6 +88,11 @@ public class AncestorComparator implements IRangeComparator {
         if (differences.length == 0)
             return result;
 
+        if (!describeChanges) {
+            result.setChanged(true);
+            return result;
+        }
+
         ChangeTextGenerator changeTxt = new ChangeTextGenerator(this, other,
                 locale);
 
@@ -16,21 +16,31 @@
 package org.outerj.daisy.diff.html.ancestor;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.compare.rangedifferencer.IRangeComparator;
 import org.eclipse.compare.rangedifferencer.RangeDifference;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.outerj.daisy.diff.html.dom.ImageNode;
 import org.outerj.daisy.diff.html.dom.Node;
 import org.outerj.daisy.diff.html.dom.TagNode;
 import org.outerj.daisy.diff.html.dom.TextNode;
-import org.outerj.daisy.diff.rangedifferencer.CustomRangeComparatorLCS;
+import org.outerj.daisy.diff.rangedifferencer.LcsOptions;
+import org.outerj.daisy.diff.rangedifferencer.TokenSequenceLCS;
 
 /**
  * A comparator that compares only the elements of text inside a given tag.
  */
 public class TextOnlyComparator implements IRangeComparator {
 
+	/**
+	 * The limits used to compute match ratios if none are given. Matching
+	 * only needs an approximation for long texts.
+	 */
+	public static final LcsOptions MATCH_RATIO_OPTIONS = new LcsOptions(1.5, 150 * 150);
+
 	private List<TextNode> leafs = new ArrayList<TextNode>();
 
 	public TextOnlyComparator(TagNode tree) {
@@ -72,10 +82,61 @@ public class TextOnlyComparator implements IRangeComparator {
 		return false;
 	}
 
+	/**
+	 * Maps every leaf to an int token such that two leafs get the same token
+	 * if and only if they have the same text. The symbol table is shared by
+	 * both comparators of a single match ratio computation.
+	 */
+	private int[] getTokens(Map<String, Integer> symbols) {
+		int[] tokens = new int[leafs.size()];
+		for (int i = 0; i < tokens.length; i++) {
+			String key = getTokenKey(leafs.get(i));
+			Integer token = symbols.get(key);
+			if (token == null) {
+				token = Integer.valueOf(symbols.size());
+				symbols.put(key, token);
+			}
+			tokens[i] = token.intValue();
+		}
+		return tokens;
+	}
+
+	/**
+	 * Returns a key for the text of a leaf, two leafs have the same key if and
+	 * only if they have the same text in the sense of
+	 * {@link TextNode#isSameText(Object)}.
+	 */
+	public static String getTokenKey(TextNode leaf) {
+		// images never have the same text as a text node
+		if (leaf instanceof ImageNode) {
+			return "I" + foldCase(leaf.getText());
+		}
+		return "T" + leaf.getText().replace('\n', ' ');
+	}
+
+	/**
+	 * Folds the case of each char like {@link String#equalsIgnoreCase(String)}
+	 * compares it, independently of the default locale.
+	 */
+	private static String foldCase(String text) {
+		char[] chars = text.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+		return new String(chars);
+	}
+
 	public double getMatchRatio(TextOnlyComparator other) {
+		return getMatchRatio(other, MATCH_RATIO_OPTIONS);
+	}
+
+	public double getMatchRatio(TextOnlyComparator other, LcsOptions options) {
 
-		RangeDifference[] differences = CustomRangeComparatorLCS.findDifferences((IProgressMonitor) null, other, this,
-				1.5, 150 * 150);
+		Map<String, Integer> symbols = new HashMap<String, Integer>();
+		int[] otherTokens = other.getTokens(symbols);
+		int[] thisTokens = getTokens(symbols);
+		RangeDifference[] differences = TokenSequenceLCS.findDifferences((IProgressMonitor) null, otherTokens,
+				thisTokens, options);
 		int distanceOther = 0;
 		for (RangeDifference d : differences) {
 			distanceOther += d.leftLength();
@@ -46,6 +46,23 @@ public class DomTreeBuilder extends DefaultHandler implements DomTree {
 
     private Node lastSibling = null;
 
+    private final TokenTable tokenTable;
+
+    /**
+     * Creates a builder with its own {@link TokenTable}.
+     */
+    public DomTreeBuilder() {
+        this(new TokenTable());
+    }
+
+    /**
+     * @param tokenTable - the table to intern the text nodes in, which
+     * should be shared with the builders of the trees to compare with
+     */
+    public DomTreeBuilder(TokenTable tokenTable) {
+        this.tokenTable = tokenTable;
+    }
+
     public BodyNode getBodyNode() {
         return bodyNode;
     }
@@ -54,6 +71,10 @@ public class DomTreeBuilder extends DefaultHandler implements DomTree {
         return textNodes;
     }
 
+    public TokenTable getTokenTable() {
+        return tokenTable;
+    }
+
     @Override
     public void startDocument() throws SAXException {
         if (documentStarted)
@@ -119,7 +140,7 @@ public class DomTreeBuilder extends DefaultHandler implements DomTree {
                         .getAttributes());
                 img.setWhiteBefore(whiteSpaceBeforeThis);
                 lastSibling = img;
-                textNodes.add(img);
+                addTextNode(img);
             }
             endWord();
             if (currentParent.isInline()) {
@@ -159,7 +180,7 @@ public class DomTreeBuilder extends DefaultHandler implements DomTree {
                     textNode.setWhiteBefore(whiteSpaceBeforeThis);
                     whiteSpaceBeforeThis = false;
                     lastSibling = textNode;
-                    textNodes.add(textNode);
+                    addTextNode(textNode);
 
                 }
             } else {
@@ -169,13 +190,18 @@ public class DomTreeBuilder extends DefaultHandler implements DomTree {
         }
     }
 
+    private void addTextNode(TextNode node) {
+        tokenTable.intern(node);
+        textNodes.add(node);
+    }
+
     private void endWord() {
         if (newWord.length() > 0) {
             TextNode node = new TextNode(currentParent, newWord.toString());
             node.setWhiteBefore(whiteSpaceBeforeThis);
             whiteSpaceBeforeThis = false;
             lastSibling = node;
-            textNodes.add(node);
+            addTextNode(node);
             newWord.setLength(0);
         }
     }
@@ -204,7 +230,7 @@ public class DomTreeBuilder extends DefaultHandler implements DomTree {
     		return;
     	}
     	
-    	textNodes.add(new SeparatingNode(currentParent));
+    	addTextNode(new SeparatingNode(currentParent));
     }
     
     public static boolean isDelimiter(char c) {
@@ -19,6 +19,7 @@ import java.util.*;
 
 import org.outerj.daisy.diff.html.ancestor.TextOnlyComparator;
 import org.outerj.daisy.diff.html.dom.helper.AttributesMap;
+import org.outerj.daisy.diff.rangedifferencer.LcsOptions;
 import org.xml.sax.Attributes;
 import org.xml.sax.helpers.AttributesImpl;
 
@@ -61,6 +62,7 @@ public class TagNode extends Node implements Iterable<Node> {
                     "The new child must have this node as a parent.");
 		}
         children.add(node);
+        childrenChanged();
     }
 
     @Override
@@ -102,6 +104,74 @@ public class TagNode extends Node implements Iterable<Node> {
                     "The new child must have this node as a parent.");
 		}
         children.add(index, node);
+        childrenChanged();
+    }
+
+    /**
+     * Removes the child at the specified index and detaches it from
+     * <code>this</code> node: its parent is cleared and it becomes the root
+     * of its own tree. The whitespace flags of the remaining children are
+     * not changed.
+     * @param index - the position of the child to remove
+     * @return the removed child
+     */
+    public Node removeChild(int index) {
+        Node child = children.remove(index);
+        detach(child);
+        childrenChanged();
+        return child;
+    }
+
+    /**
+     * Removes all the given nodes which are children of <code>this</code>
+     * node in a single pass over the children, and detaches them like
+     * {@link #removeChild(int)}. Nodes which are not children of
+     * <code>this</code> node are ignored.
+     * @param nodes - the nodes to remove
+     * @return the number of removed children
+     */
+    public int removeChildren(Collection<? extends Node> nodes) {
+        if (nodes.isEmpty()) {
+            return 0;
+        }
+        Set<Node> toRemove = Collections.newSetFromMap(
+                new IdentityHashMap<Node, Boolean>());
+        toRemove.addAll(nodes);
+        int kept = 0;
+        for (int i = 0; i < children.size(); i++) {
+            Node child = children.get(i);
+            if (toRemove.contains(child)) {
+                detach(child);
+            } else {
+                children.set(kept++, child);
+            }
+        }
+        int removed = children.size() - kept;
+        if (removed > 0) {
+            children.subList(kept, children.size()).clear();
+            childrenChanged();
+        }
+        return removed;
+    }
+
+    /**
+     * @return an unmodifiable view of the children, use the structural edit
+     * operations of this class to change them
+     */
+    public List<Node> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Called after children have been added or removed, so
+     * subclasses can update the information they derive from the children.
+     */
+    protected void childrenChanged() {
+    }
+
+    private static void detach(Node node) {
+        node.setParent(null);
+        node.setRoot(node instanceof TagNode ? (TagNode) node : null);
     }
 
     public Node getChild(int i) {
@@ -410,10 +480,11 @@ public class TagNode extends Node implements Iterable<Node> {
 
     private void removeChild(Node node) {
         children.remove(node);
+        childrenChanged();
     }
 
     //block tags
-    private static Set<String> blocks = new HashSet<String>();
+    private static final Set<String> blocks = new HashSet<String>();
     static {
         blocks.add("html");
         blocks.add("body");
@@ -483,8 +554,12 @@ public class TagNode extends Node implements Iterable<Node> {
     }
 
     public double getMatchRatio(TagNode other) {
+        return getMatchRatio(other, TextOnlyComparator.MATCH_RATIO_OPTIONS);
+    }
+
+    public double getMatchRatio(TagNode other, LcsOptions options) {
         TextOnlyComparator txtComp = new TextOnlyComparator(other);
-        return txtComp.getMatchRatio(new TextOnlyComparator(this));
+        return txtComp.getMatchRatio(new TextOnlyComparator(this), options);
     }
 
     public void expandWhiteSpace() {
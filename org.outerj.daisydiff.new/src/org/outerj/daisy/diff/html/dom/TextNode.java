@@ -30,6 +30,10 @@ public class TextNode extends Node implements Cloneable {
 
     private Modification modification;
 
+    private TokenTable tokenTable;
+
+    private int tokenId = -1;
+
     public TextNode(TagNode parent, String s) {
         super(parent);
         this.modification = new Modification(ModificationType.NONE, ModificationType.NONE);
@@ -75,6 +79,26 @@ public class TextNode extends Node implements Cloneable {
         return s;
     }
 
+    /**
+     * @return the table this node has been interned in, or <code>null</code>
+     */
+    public TokenTable getTokenTable() {
+        return tokenTable;
+    }
+
+    /**
+     * @return the id of the text of this node in its {@link TokenTable}, or
+     * -1 if the node has not been interned
+     */
+    public int getTokenId() {
+        return tokenId;
+    }
+
+    void setTokenId(TokenTable tokenTable, int tokenId) {
+        this.tokenTable = tokenTable;
+        this.tokenId = tokenId;
+    }
+
     public boolean isSameText(Object other) {
         if (other == null)
             return false;
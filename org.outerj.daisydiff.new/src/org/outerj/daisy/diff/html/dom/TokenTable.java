@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.outerj.daisy.diff.html.dom;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.outerj.daisy.diff.html.ancestor.TextOnlyComparator;
+
+/**
+ * A symbol table mapping the texts of {@link TextNode}s to int ids, such that
+ * two text nodes interned in the same table get the same id if and only if
+ * they have the same text in the sense of {@link TextNode#isSameText(Object)}.
+ * <p>
+ * The trees which are compared with each other should be built with the same
+ * table, then comparing two text nodes is a comparison of their ids. The
+ * table may be shared by trees which are built concurrently.
+ */
+public class TokenTable {
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Assigns the id of the text of the given node to it.
+     * @param node - the node to intern
+     * @return the id of the node
+     */
+    public int intern(TextNode node) {
+        String key = TextOnlyComparator.getTokenKey(node);
+        Integer id = ids.get(key);
+        if (id == null) {
+            Integer newId = Integer.valueOf(nextId.getAndIncrement());
+            id = ids.putIfAbsent(key, newId);
+            if (id == null) {
+                id = newId;
+            }
+        }
+        node.setTokenId(this, id.intValue());
+        return id.intValue();
+    }
+
+    /**
+     * @return the number of distinct texts in this table
+     */
+    public int size() {
+        return ids.size();
+    }
+
+}
@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.outerj.daisy.diff.output;
+
+/**
+ * A {@link DiffOutput} which declares the level of detail it needs, so the
+ * differ can skip computing what is not used. Outputs which do not implement
+ * this interface get {@link DiffOutputDetail#CHANGE_DESCRIPTIONS}.
+ */
+public interface DetailedDiffOutput extends DiffOutput {
+
+	/**
+	 * @return the level of detail of the modifications this output uses
+	 */
+	DiffOutputDetail getDetail();
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.outerj.daisy.diff.output;
+
+import org.outerj.daisy.diff.html.modification.Modification;
+
+/**
+ * The level of detail of the {@link Modification}s a {@link DiffOutput} uses.
+ */
+public enum DiffOutputDetail {
+
+	/**
+	 * Only the types of the modifications are used. The descriptions of
+	 * changed tags are not computed, so {@link Modification#getChanges()} is
+	 * null and {@link Modification#getHtmlLayoutChanges()} is empty.
+	 */
+	MODIFICATION_TYPES,
+
+	/**
+	 * The modifications include the descriptions of changed tags.
+	 */
+	CHANGE_DESCRIPTIONS
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.outerj.daisy.diff.rangedifferencer;
+
+/**
+ * Immutable complexity limits of a single longest common subsequence
+ * computation. If the product of both sequence lengths exceeds
+ * <code>tooLong</code>, the number of differences searched for is limited to
+ * <code>D^(powLimit - 1)</code> and the result is only an approximation of the
+ * LCS.
+ * <p>
+ * The options are passed to every computation, so concurrent computations
+ * with different limits do not influence each other.
+ */
+public final class LcsOptions {
+
+	/** The limits used by the LCS of the compare bundle. */
+	public static final LcsOptions DEFAULT = new LcsOptions(1.5, 10000000.0);
+
+	private final double powLimit;
+
+	private final double tooLong;
+
+	public LcsOptions(double powLimit, double tooLong) {
+		this.powLimit = powLimit;
+		this.tooLong = tooLong;
+	}
+
+	public double getPowLimit() {
+		return powLimit;
+	}
+
+	public double getTooLong() {
+		return tooLong;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof LcsOptions)) {
+			return false;
+		}
+		LcsOptions other = (LcsOptions) obj;
+		return Double.compare(powLimit, other.powLimit) == 0 && Double.compare(tooLong, other.tooLong) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		long bits = Double.doubleToLongBits(powLimit) * 31 + Double.doubleToLongBits(tooLong);
+		return (int) (bits ^ (bits >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "LcsOptions[powLimit=" + powLimit + ", tooLong=" + tooLong + "]";
+	}
+
+}
@@ -0,0 +1,460 @@
+/*******************************************************************************
+ * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.outerj.daisy.diff.rangedifferencer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.outerj.daisy.diff.helper.RangeDifferenceHelper;
+
+/**
+ * Self-contained port of the linear space longest common subsequence
+ * algorithm used by <code>org.eclipse.compare.internal.core.LCS</code>.
+ * Subclasses only have to provide the lengths of both sequences and an
+ * equality test, no access to the internals of the compare bundle is needed.
+ *
+ * Myers' algorithm for longest common subsequence. O((M + N)D) worst case
+ * time, O(M + N + D^2) expected time, O(M + N) space
+ * (http://citeseer.ist.psu.edu/myers86ond.html)
+ *
+ * Note: Beyond implementing the algorithm as described in the paper, diagonal
+ * range compression is used which helps when finding the LCS of a very long
+ * and a very short sequence, and the running time is bound to (N + M)^1.5 when
+ * both sequences are very long.
+ */
+public abstract class LinearSpaceLCS {
+
+	private final LcsOptions options;
+
+	private int maxDifferences;
+
+	private int length;
+
+	private int[][] lcs;
+
+	protected abstract int getLength1();
+
+	protected abstract int getLength2();
+
+	protected abstract boolean isRangeEqual(int i1, int i2);
+
+	protected LinearSpaceLCS(LcsOptions options) {
+		this.options = options;
+	}
+
+	public LcsOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * @return the length of the longest common subsequence, available after
+	 *         {@link #longestCommonSubsequence(SubMonitor)} has been called
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	private void initializeLcs(int lcsLength) {
+		lcs = new int[2][lcsLength];
+	}
+
+	private void setLcs(int sl1, int sl2) {
+		// Add one to the values so that 0 can mean that the slot is empty
+		lcs[0][sl1] = sl1 + 1;
+		lcs[1][sl1] = sl2 + 1;
+	}
+
+	/**
+	 * Computes the longest common subsequence of both sequences. Afterwards
+	 * the differences are available through {@link #getDifferences(SubMonitor)}.
+	 *
+	 * @param subMonitor
+	 */
+	public void longestCommonSubsequence(SubMonitor subMonitor) {
+		int length1 = getLength1();
+		int length2 = getLength2();
+		if (length1 == 0 || length2 == 0) {
+			length = 0;
+			return;
+		}
+
+		maxDifferences = (length1 + length2 + 1) / 2; // ceil((N+M)/2)
+		if ((double) length1 * (double) length2 > options.getTooLong()) {
+			// limit complexity to D^POW_LIMIT for long sequences
+			maxDifferences = (int) Math.pow(maxDifferences, options.getPowLimit() - 1.0);
+		}
+
+		initializeLcs(length1);
+
+		subMonitor.beginTask(null, length1);
+
+		/*
+		 * The common prefixes and suffixes are always part of some LCS, include
+		 * them now to reduce our search space
+		 */
+		int forwardBound;
+		int max = Math.min(length1, length2);
+		for (forwardBound = 0; forwardBound < max && isRangeEqual(forwardBound, forwardBound); forwardBound++) {
+			setLcs(forwardBound, forwardBound);
+			worked(subMonitor, 1);
+		}
+
+		int backBoundL1 = length1 - 1;
+		int backBoundL2 = length2 - 1;
+
+		while (backBoundL1 >= forwardBound && backBoundL2 >= forwardBound && isRangeEqual(backBoundL1, backBoundL2)) {
+			setLcs(backBoundL1, backBoundL2);
+			backBoundL1--;
+			backBoundL2--;
+			worked(subMonitor, 1);
+		}
+
+		length = forwardBound
+				+ length1
+				- backBoundL1
+				- 1
+				+ lcsRec(forwardBound, backBoundL1, forwardBound, backBoundL2, new int[2][length1 + length2 + 1],
+						new int[3], subMonitor);
+	}
+
+	/**
+	 * Computes the LCS of the given sub ranges (bounds inclusive) by recursively
+	 * splitting them at their middle snake.
+	 *
+	 * @return the length of the LCS of the given ranges
+	 */
+	private int lcsRec(int bottoml1, int topl1, int bottoml2, int topl2, int[][] V, int[] snake, SubMonitor subMonitor) {
+		// check that both sequences are non-empty
+		if (bottoml1 > topl1 || bottoml2 > topl2) {
+			return 0;
+		}
+
+		int d = findMiddleSnake(bottoml1, topl1, bottoml2, topl2, V, snake);
+
+		// need to store these so we don't lose them when they're overwritten
+		// by the recursion
+		int len = snake[2];
+		int startx = snake[0];
+		int starty = snake[1];
+
+		// the middle snake is part of the LCS, store it
+		for (int i = 0; i < len; i++) {
+			setLcs(startx + i, starty + i);
+			worked(subMonitor, 1);
+		}
+
+		if (d > 1) {
+			return len + lcsRec(bottoml1, startx - 1, bottoml2, starty - 1, V, snake, subMonitor)
+					+ lcsRec(startx + len, topl1, starty + len, topl2, V, snake, subMonitor);
+		} else if (d == 1) {
+			/*
+			 * In this case the sequences differ by exactly 1 line. We have
+			 * already saved all the lines after the difference in the for loop
+			 * above, now we need to save all the lines before the difference.
+			 */
+			int max = Math.min(startx - bottoml1, starty - bottoml2);
+			for (int i = 0; i < max; i++) {
+				setLcs(bottoml1 + i, bottoml2 + i);
+				worked(subMonitor, 1);
+			}
+			return max + len;
+		}
+
+		return len;
+	}
+
+	/**
+	 * Finds the middle snake of the given sub ranges (bounds inclusive) and
+	 * stores its start and length in <code>snake</code>.
+	 *
+	 * @return the length of the shortest edit script of the given ranges
+	 */
+	private int findMiddleSnake(int bottoml1, int topl1, int bottoml2, int topl2, int[][] V, int[] snake) {
+		int N = topl1 - bottoml1 + 1;
+		int M = topl2 - bottoml2 + 1;
+		int delta = N - M;
+		boolean isEven = (delta & 1) == 0;
+
+		int limit = Math.min(maxDifferences, (N + M + 1) / 2); // ceil((N+M)/2)
+
+		// a 0 or 1 that we add to the start offset to make it odd/even
+		int valueToAddForward = (M & 1) == 1 ? 1 : 0;
+		int valueToAddBackward = (N & 1) == 1 ? 1 : 0;
+
+		int startForward = -M;
+		int endForward = N;
+		int startBackward = -N;
+		int endBackward = M;
+
+		V[0][limit + 1] = 0;
+		V[1][limit - 1] = N;
+		for (int d = 0; d <= limit; d++) {
+
+			int startDiag = Math.max(valueToAddForward + startForward, -d);
+			int endDiag = Math.min(endForward, d);
+			valueToAddForward = 1 - valueToAddForward;
+
+			// compute forward furthest reaching paths
+			for (int k = startDiag; k <= endDiag; k += 2) {
+				int x;
+				if (k == -d || (k < d && V[0][limit + k - 1] < V[0][limit + k + 1])) {
+					x = V[0][limit + k + 1];
+				} else {
+					x = V[0][limit + k - 1] + 1;
+				}
+				int y = x - k;
+
+				snake[0] = x + bottoml1;
+				snake[1] = y + bottoml2;
+				snake[2] = 0;
+				while (x < N && y < M && isRangeEqual(x + bottoml1, y + bottoml2)) {
+					x++;
+					y++;
+					snake[2]++;
+				}
+				V[0][limit + k] = x;
+				if (!isEven && k >= delta - d + 1 && k <= delta + d - 1 && x >= V[1][limit + k - delta]) {
+					return 2 * d - 1;
+				}
+
+				// check to see if we can cut down the diagonal range
+				if (x >= N && endForward > k - 1) {
+					endForward = k - 1;
+				} else if (y >= M) {
+					startForward = k + 1;
+					valueToAddForward = 0;
+				}
+			}
+
+			startDiag = Math.max(valueToAddBackward + startBackward, -d);
+			endDiag = Math.min(endBackward, d);
+			valueToAddBackward = 1 - valueToAddBackward;
+
+			// compute backward furthest reaching paths
+			for (int k = startDiag; k <= endDiag; k += 2) {
+				int x;
+				if (k == d || (k != -d && V[1][limit + k - 1] < V[1][limit + k + 1])) {
+					x = V[1][limit + k - 1];
+				} else {
+					x = V[1][limit + k + 1] - 1;
+				}
+				int y = x - k - delta;
+				snake[2] = 0;
+				while (x > 0 && y > 0 && isRangeEqual(x - 1 + bottoml1, y - 1 + bottoml2)) {
+					x--;
+					y--;
+					snake[2]++;
+				}
+				V[1][limit + k] = x;
+				if (isEven && k >= -delta - d && k <= d - delta && x <= V[0][limit + k + delta]) {
+					snake[0] = bottoml1 + x;
+					snake[1] = bottoml2 + y;
+					return 2 * d;
+				}
+
+				// check to see if we can cut down our diagonal range
+				if (x <= 0) {
+					startBackward = k + 1;
+					valueToAddBackward = 0;
+				} else if (y <= 0 && endBackward > k - 1) {
+					endBackward = k - 1;
+				}
+			}
+		}
+
+		/*
+		 * computing the true LCS is too expensive, instead find the diagonal
+		 * with the most progress and pretend a middle snake of length 0 occurs
+		 * there.
+		 */
+		int[] mostProgress = findMostProgress(M, N, limit, V);
+
+		snake[0] = bottoml1 + mostProgress[0];
+		snake[1] = bottoml2 + mostProgress[1];
+		snake[2] = 0;
+		/*
+		 * since we didn't really finish the LCS computation we don't really
+		 * know the length of the SES. We don't do anything with the result
+		 * anyway, unless it's <=1. We know for a fact SES > 1 so 5 is as good
+		 * a number as any to return here
+		 */
+		return 5;
+	}
+
+	/**
+	 * Takes the array with furthest reaching D-paths from an LCS computation
+	 * and returns the x,y coordinates and progress made in the middle diagonal
+	 * among those with maximum progress, both from the front and from the
+	 * back.
+	 */
+	private static int[] findMostProgress(int M, int N, int limit, int[][] V) {
+		int delta = N - M;
+
+		int forwardStartDiag;
+		if ((M & 1) == (limit & 1)) {
+			forwardStartDiag = Math.max(-M, -limit);
+		} else {
+			forwardStartDiag = Math.max(1 - M, -limit);
+		}
+
+		int forwardEndDiag = Math.min(N, limit);
+
+		int backwardStartDiag;
+		if ((N & 1) == (limit & 1)) {
+			backwardStartDiag = Math.max(-N, -limit);
+		} else {
+			backwardStartDiag = Math.max(1 - N, -limit);
+		}
+
+		int backwardEndDiag = Math.min(M, limit);
+
+		int[][] maxProgress = new int[Math.max(forwardEndDiag - forwardStartDiag, backwardEndDiag
+				- backwardStartDiag) / 2 + 1][3];
+		// the 1st entry is current, it is initialized with 0s
+		int numProgress = 0;
+
+		// first search the forward diagonals
+		for (int k = forwardStartDiag; k <= forwardEndDiag; k += 2) {
+			int x = V[0][limit + k];
+			int y = x - k;
+			if (x > N || y > M) {
+				continue;
+			}
+
+			int progress = x + y;
+			if (progress > maxProgress[0][2]) {
+				numProgress = 0;
+				maxProgress[0][0] = x;
+				maxProgress[0][1] = y;
+				maxProgress[0][2] = progress;
+			} else if (progress == maxProgress[0][2]) {
+				numProgress++;
+				maxProgress[numProgress][0] = x;
+				maxProgress[numProgress][1] = y;
+				maxProgress[numProgress][2] = progress;
+			}
+		}
+
+		// initially the maximum progress is in the forward direction
+		boolean maxProgressForward = true;
+
+		// now search the backward diagonals
+		for (int k = backwardStartDiag; k <= backwardEndDiag; k += 2) {
+			int x = V[1][limit + k];
+			int y = x - k - delta;
+			if (x < 0 || y < 0) {
+				continue;
+			}
+
+			int progress = N - x + M - y;
+			if (progress > maxProgress[0][2]) {
+				numProgress = 0;
+				maxProgressForward = false;
+				maxProgress[0][0] = x;
+				maxProgress[0][1] = y;
+				maxProgress[0][2] = progress;
+			} else if (progress == maxProgress[0][2] && !maxProgressForward) {
+				numProgress++;
+				maxProgress[numProgress][0] = x;
+				maxProgress[numProgress][1] = y;
+				maxProgress[numProgress][2] = progress;
+			}
+		}
+
+		// return the middle diagonal with maximal progress.
+		return maxProgress[numProgress / 2];
+	}
+
+	/**
+	 * Converts the computed longest common subsequence into a list of
+	 * {@link RangeDifference}s, where the first sequence is the left and the
+	 * second sequence is the right side.
+	 *
+	 * @param subMonitor
+	 * @return the differences between both sequences
+	 */
+	public RangeDifference[] getDifferences(SubMonitor subMonitor) {
+		try {
+			List<RangeDifference> differences = new ArrayList<RangeDifference>();
+			int length1 = getLength1();
+			int length2 = getLength2();
+			if (length == 0) {
+				differences.add(RangeDifferenceHelper.getRangeDifference(RangeDifference.CHANGE, 0, length2, 0, length1));
+			} else {
+				subMonitor.beginTask(null, length);
+				int index1, index2;
+				index1 = index2 = 0;
+				int l1, l2;
+				int s1 = -1;
+				int s2 = -1;
+				while (index1 < lcs[0].length && index2 < lcs[1].length) {
+					// Move both LCS lists to the next occupied slot
+					while ((l1 = lcs[0][index1]) == 0) {
+						index1++;
+						if (index1 >= lcs[0].length)
+							break;
+					}
+					if (index1 >= lcs[0].length)
+						break;
+					while ((l2 = lcs[1][index2]) == 0) {
+						index2++;
+						if (index2 >= lcs[1].length)
+							break;
+					}
+					if (index2 >= lcs[1].length)
+						break;
+					// Convert the entry to an array index (see setLcs(int,
+					// int))
+					int end1 = l1 - 1;
+					int end2 = l2 - 1;
+					if (s1 == -1 && (end1 != 0 || end2 != 0)) {
+						// There is a diff at the beginning
+						differences.add(RangeDifferenceHelper.getRangeDifference(RangeDifference.CHANGE, 0, end2, 0, end1));
+					} else if (end1 != s1 + 1 || end2 != s2 + 1) {
+						// A diff was found on one of the sides
+						int leftStart = s1 + 1;
+						int leftLength = end1 - leftStart;
+						int rightStart = s2 + 1;
+						int rightLength = end2 - rightStart;
+						differences.add(RangeDifferenceHelper.getRangeDifference(RangeDifference.CHANGE, rightStart,
+								rightLength, leftStart, leftLength));
+					}
+					s1 = end1;
+					s2 = end2;
+					index1++;
+					index2++;
+					worked(subMonitor, 1);
+				}
+				if (s1 != -1 && (s1 + 1 < length1 || s2 + 1 < length2)) {
+					// there is a diff at the end
+					int leftStart = s1 < length1 ? s1 + 1 : s1;
+					int rightStart = s2 < length2 ? s2 + 1 : s2;
+					differences.add(RangeDifferenceHelper.getRangeDifference(RangeDifference.CHANGE, rightStart, length2
+							- (s2 + 1), leftStart, length1 - (s1 + 1)));
+				}
+
+			}
+			return differences.toArray(new RangeDifference[differences.size()]);
+		} finally {
+			subMonitor.done();
+		}
+	}
+
+	private void worked(SubMonitor subMonitor, int work) {
+		if (subMonitor.isCanceled())
+			throw new OperationCanceledException();
+		subMonitor.worked(work);
+	}
+
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.outerj.daisy.diff.rangedifferencer;
+
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Longest common subsequence of two sequences of int tokens. Two ranges are
+ * equal if their tokens are equal, so callers map equal elements to the same
+ * token beforehand and the inner loops of the algorithm only compare ints.
+ */
+public final class TokenSequenceLCS extends LinearSpaceLCS {
+
+	private final int[] tokens1, tokens2;
+
+	/**
+	 * Computes the differences between both token sequences. The returned
+	 * differences are identical to the ones computed by
+	 * {@link CustomRangeComparatorLCS#findDifferences(IProgressMonitor, org.eclipse.compare.rangedifferencer.IRangeComparator, org.eclipse.compare.rangedifferencer.IRangeComparator, LcsOptions)}
+	 * for comparators whose ranges are equal exactly when their tokens are.
+	 *
+	 * @param pm
+	 *            a progress monitor, may be <code>null</code>
+	 * @param left
+	 *            the tokens of the left sequence
+	 * @param right
+	 *            the tokens of the right sequence
+	 * @param options
+	 *            the complexity limits of the computation
+	 * @return the differences between both sequences
+	 */
+	public static RangeDifference[] findDifferences(IProgressMonitor pm, int[] left, int[] right, LcsOptions options) {
+
+		TokenSequenceLCS lcs = new TokenSequenceLCS(left, right, options);
+
+		SubMonitor monitor = SubMonitor.convert(pm, "", 100);
+		try {
+			lcs.longestCommonSubsequence(monitor.newChild(95));
+			return lcs.getDifferences(monitor.newChild(5));
+		} finally {
+			if (pm != null)
+				pm.done();
+		}
+	}
+
+	public TokenSequenceLCS(int[] tokens1, int[] tokens2, LcsOptions options) {
+		super(options);
+		this.tokens1 = tokens1;
+		this.tokens2 = tokens2;
+	}
+
+	@Override
+	protected int getLength1() {
+		return tokens1.length;
+	}
+
+	@Override
+	protected int getLength2() {
+		return tokens2.length;
+	}
+
+	@Override
+	protected boolean isRangeEqual(int i1, int i2) {
+		return tokens1[i1] == tokens2[i2];
+	}
+
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2015 EclipseSource Muenchen GmbH and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     EclipseSource Muenchen GmbH - initial API and implementation
+ *******************************************************************************/
+package org.outerj.daisy.diff.rangedifferencer;
+
+import org.eclipse.compare.rangedifferencer.IRangeComparator;
+import org.eclipse.compare.rangedifferencer.RangeDifference;
+import org.eclipse.compare.rangedifferencer.RangeDifferencer;
+import org.outerj.daisy.diff.helper.RangeDifferenceHelper;
+
+/**
+ * Finds the same differences as {@link RangeDifferencer}, but skips its LCS if
+ * the ranges only differ by a single insertion, deletion or replacement.
+ * <p>
+ * The LCS of {@link RangeDifferencer} matches the common prefix and suffix
+ * first, bounding the suffix by the prefix in the same way as this class. If
+ * nothing is left of one of the ranges between them, the window between the
+ * prefix and the suffix is the only difference. Otherwise the LCS of the
+ * window may pair equal ranges differently than the LCS of the whole ranges,
+ * so the whole ranges are passed to {@link RangeDifferencer}.
+ */
+public final class TrimmedRangeDifferencer {
+
+	private static final RangeDifference[] EMPTY_RESULT = new RangeDifference[0];
+
+	private TrimmedRangeDifferencer() {
+	}
+
+	/**
+	 * Finds the differences between two {@link IRangeComparator}s, like
+	 * {@link RangeDifferencer#findDifferences(IRangeComparator, IRangeComparator)}.
+	 *
+	 * @param left
+	 *            the left range comparator
+	 * @param right
+	 *            the right range comparator
+	 * @return the differences, or an empty array if there are none
+	 */
+	public static RangeDifference[] findDifferences(IRangeComparator left, IRangeComparator right) {
+		int leftCount = left.getRangeCount();
+		int rightCount = right.getRangeCount();
+		if (leftCount == 0 || rightCount == 0) {
+			return RangeDifferencer.findDifferences(left, right);
+		}
+		int prefix = getCommonPrefix(left, right);
+		if (prefix == leftCount && prefix == rightCount) {
+			return EMPTY_RESULT;
+		}
+		// the suffix must not overlap the prefix
+		int suffix = getCommonSuffix(left, right, Math.min(leftCount, rightCount) - prefix);
+		int leftEnd = leftCount - suffix;
+		int rightEnd = rightCount - suffix;
+		if (prefix < leftEnd && prefix < rightEnd) {
+			return RangeDifferencer.findDifferences(left, right);
+		}
+		return new RangeDifference[] { RangeDifferenceHelper.getRangeDifference(RangeDifference.CHANGE, prefix,
+				rightEnd - prefix, prefix, leftEnd - prefix) };
+	}
+
+	/**
+	 * Finds the differences between a part of the ranges of two
+	 * {@link IRangeComparator}s. The offsets of the differences refer to the
+	 * whole ranges.
+	 *
+	 * @param left
+	 *            the left range comparator
+	 * @param leftStart
+	 *            the first left range to compare
+	 * @param leftEnd
+	 *            the end of the left ranges to compare, exclusive
+	 * @param right
+	 *            the right range comparator
+	 * @param rightStart
+	 *            the first right range to compare
+	 * @param rightEnd
+	 *            the end of the right ranges to compare, exclusive
+	 * @return the differences, or an empty array if there are none
+	 */
+	public static RangeDifference[] findDifferences(IRangeComparator left, int leftStart, int leftEnd,
+			IRangeComparator right, int rightStart, int rightEnd) {
+		RangeDifference[] differences = findDifferences(new RangeWindow(left, leftStart, leftEnd - leftStart),
+				new RangeWindow(right, rightStart, rightEnd - rightStart));
+		for (int i = 0; i < differences.length; i++) {
+			RangeDifference d = differences[i];
+			differences[i] = RangeDifferenceHelper.getRangeDifference(d.kind(), d.rightStart() + rightStart,
+					d.rightLength(), d.leftStart() + leftStart, d.leftLength());
+		}
+		return differences;
+	}
+
+	/**
+	 * Finds the differences between three {@link IRangeComparator}s, like
+	 * {@link RangeDifferencer#findDifferences(IRangeComparator, IRangeComparator, IRangeComparator)}
+	 * .
+	 *
+	 * @param ancestor
+	 *            the ancestor range comparator, or null for a two-way
+	 *            comparison
+	 * @param left
+	 *            the left range comparator
+	 * @param right
+	 *            the right range comparator
+	 * @return the differences, or an empty array if there are none
+	 */
+	public static RangeDifference[] findDifferences(IRangeComparator ancestor, IRangeComparator left,
+			IRangeComparator right) {
+		if (ancestor == null) {
+			return findDifferences(left, right);
+		}
+		// the three-way comparison pairs the differences found by the LCS of
+		// the whole ranges of both sides, which are not trimmed
+		return RangeDifferencer.findDifferences(ancestor, left, right);
+	}
+
+	private static int getCommonPrefix(IRangeComparator first, IRangeComparator second) {
+		int max = Math.min(first.getRangeCount(), second.getRangeCount());
+		int prefix = 0;
+		while (prefix < max && first.rangesEqual(prefix, second, prefix)) {
+			prefix++;
+		}
+		return prefix;
+	}
+
+	private static int getCommonSuffix(IRangeComparator first, IRangeComparator second, int max) {
+		int firstEnd = first.getRangeCount() - 1;
+		int secondEnd = second.getRangeCount() - 1;
+		int suffix = 0;
+		while (suffix < max && first.rangesEqual(firstEnd - suffix, second, secondEnd - suffix)) {
+			suffix++;
+		}
+		return suffix;
+	}
+
+	/**
+	 * A consecutive part of the ranges of another {@link IRangeComparator}.
+	 */
+	private static class RangeWindow implements IRangeComparator {
+
+		private final IRangeComparator comparator;
+
+		private final int offset;
+
+		private final int count;
+
+		public RangeWindow(IRangeComparator comparator, int offset, int count) {
+			this.comparator = comparator;
+			this.offset = offset;
+			this.count = count;
+		}
+
+		public int getRangeCount() {
+			return count;
+		}
+
+		public boolean rangesEqual(int thisIndex, IRangeComparator other, int otherIndex) {
+			RangeWindow window = (RangeWindow) other;
+			return comparator.rangesEqual(offset + thisIndex, window.comparator, window.offset + otherIndex);
+		}
+
+		public boolean skipRangeComparison(int length, int maxLength, IRangeComparator other) {
+			return false;
+		}
+	}
+
+}